@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import mjson.Json;
+
+import net.fabricmc.installer.util.ArgumentParser;
+import net.fabricmc.installer.util.FabricService;
+import net.fabricmc.installer.util.LauncherMeta;
+import net.fabricmc.installer.util.Library;
+import net.fabricmc.installer.util.MetaHandler;
+import net.fabricmc.installer.util.OfflineBundle;
+import net.fabricmc.installer.util.Reference;
+import net.fabricmc.installer.util.VersionMeta;
+
+/**
+ * Writes an {@link OfflineBundle} for a set of game and loader versions.
+ */
+public final class BundleExporter {
+	public static final String CLI_HELP = "-output <bundle zip> -mcversion <minecraft version(s), comma separated, default latest> -loader <loader version(s), comma separated, default latest> -client -server <default both> -downloadMinecraft";
+
+	private final ZipOutputStream zip;
+	private final Path tmpFile;
+	private final Set<String> entries = new HashSet<>();
+
+	private BundleExporter(ZipOutputStream zip, Path tmpFile) {
+		this.zip = zip;
+		this.tmpFile = tmpFile;
+	}
+
+	public static void exportCli(ArgumentParser args) throws IOException {
+		Path output = Paths.get(args.getOrDefault("output", () -> "fabric-bundle.zip"));
+		List<String> gameVersions = resolveVersions(args.get("mcversion"), args.has("snapshot"), Main.GAME_VERSION_META);
+		List<String> loaderVersions = resolveVersions(args.get("loader"), false, Main.LOADER_META);
+		boolean client = args.has("client") || !args.has("server");
+		boolean server = args.has("server") || !args.has("client");
+
+		export(output, gameVersions, loaderVersions, client, server, args.has("downloadMinecraft"));
+	}
+
+	public static void export(Path output, List<String> gameVersions, List<String> loaderVersions, boolean client, boolean server, boolean minecraftServer) throws IOException {
+		Path tmpFile = Files.createTempFile("fabric-bundle", ".tmp");
+
+		try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(output))) {
+			BundleExporter exporter = new BundleExporter(zip, tmpFile);
+
+			// Version lists restricted to the bundled versions, so "latest" resolves within the bundle
+			exporter.putVersionList("v2/versions/game", gameVersions);
+			exporter.putVersionList("v2/versions/loader", loaderVersions);
+
+			for (String gameVersion : gameVersions) {
+				for (String loaderVersion : loaderVersions) {
+					System.out.printf("Exporting loader %s for minecraft %s%n", loaderVersion, gameVersion);
+
+					if (client) exporter.putLoaderJson(String.format("v2/versions/loader/%s/%s/profile/json", gameVersion, loaderVersion));
+					if (server) exporter.putLoaderJson(String.format("v2/versions/loader/%s/%s/server/json", gameVersion, loaderVersion));
+				}
+			}
+
+			if (minecraftServer) {
+				exporter.putMinecraftServers(gameVersions);
+			}
+		} finally {
+			Files.deleteIfExists(tmpFile);
+		}
+
+		System.out.println("Wrote offline bundle to " + output.toAbsolutePath());
+	}
+
+	private static List<String> resolveVersions(String value, boolean snapshot, MetaHandler meta) {
+		List<String> ret = new ArrayList<>();
+
+		for (String name : value == null ? new String[]{null} : value.split(",")) {
+			MetaHandler.GameVersion version = meta.parseVersion(name == null ? null : name.trim(), snapshot);
+			if (version == null) throw new IllegalArgumentException(String.format("unknown %s version: %s", meta.getName(), name));
+
+			ret.add(version.getVersion());
+		}
+
+		return ret;
+	}
+
+	private void putVersionList(String path, List<String> versions) throws IOException {
+		Json filtered = Json.array();
+
+		for (Json version : FabricService.queryMetaJson(path).asJsonList()) {
+			if (versions.contains(version.at("version").asString())) {
+				filtered.add(version);
+			}
+		}
+
+		putJson(OfflineBundle.metaPath(path), filtered);
+	}
+
+	private void putLoaderJson(String path) throws IOException {
+		Json json = FabricService.queryMetaJson(path);
+		putJson(OfflineBundle.metaPath(path), json);
+
+		for (Json libraryJson : json.at("libraries").asJsonList()) {
+			putUrl(new Library(libraryJson).getURL());
+		}
+	}
+
+	private void putMinecraftServers(List<String> gameVersions) throws IOException {
+		LauncherMeta launcherMeta = LauncherMeta.getLauncherMeta();
+		Json manifestVersions = Json.array();
+
+		for (String gameVersion : gameVersions) {
+			LauncherMeta.Version version = launcherMeta.getVersion(gameVersion);
+			if (version == null) throw new IOException("Failed to find version info for minecraft " + gameVersion);
+
+			System.out.printf("Exporting minecraft %s server%n", gameVersion);
+			manifestVersions.add(Json.object().set("id", version.id).set("url", version.url));
+
+			putJson(OfflineBundle.urlPath(version.url), FabricService.queryJsonSubstitutedMaven(version.url));
+
+			VersionMeta.Download download = version.getVersionMeta().downloads.get("server");
+			if (download == null) throw new IOException("No server download for minecraft " + gameVersion);
+
+			putUrl(download.url);
+		}
+
+		// Only the bundled versions are listed, the experimental manifest is left empty as they are all in the main one
+		putJson(OfflineBundle.urlPath(Reference.MINECRAFT_LAUNCHER_MANIFEST), Json.object().set("versions", manifestVersions));
+		putJson(OfflineBundle.urlPath(Reference.EXPERIMENTAL_LAUNCHER_MANIFEST), Json.object().set("versions", Json.array()));
+	}
+
+	private void putJson(String name, Json json) throws IOException {
+		if (!entries.add(name)) return;
+
+		zip.putNextEntry(new ZipEntry(name));
+		zip.write(json.toString().getBytes(StandardCharsets.UTF_8));
+		zip.closeEntry();
+	}
+
+	private void putUrl(String url) throws IOException {
+		String name = OfflineBundle.urlPath(url);
+		if (!entries.add(name)) return;
+
+		FabricService.downloadSubstitutedMaven(url, tmpFile);
+
+		zip.putNextEntry(new ZipEntry(name));
+		Files.copy(tmpFile, zip);
+		zip.closeEntry();
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer;
+
+import java.util.function.Predicate;
+
+import net.fabricmc.installer.util.ArgumentParser;
+
+/**
+ * A command line command, selected by the first argument.
+ *
+ * <p>Commands must not use AWT or Swing, so that the command line never loads them.
+ */
+public final class CliCommand {
+	public final String name;
+	public final String help;
+	private final Predicate<ArgumentParser> needsMetadata;
+	private final String failureMessage;
+	private final Action action;
+
+	/**
+	 * @param needsMetadata whether the game and loader version lists have to be loaded before running
+	 * @param failureMessage the message of the exception thrown if action fails, or null to rethrow as is
+	 */
+	public CliCommand(String name, String help, Predicate<ArgumentParser> needsMetadata, String failureMessage, Action action) {
+		this.name = name;
+		this.help = help;
+		this.needsMetadata = needsMetadata;
+		this.failureMessage = failureMessage;
+		this.action = action;
+	}
+
+	public boolean needsMetadata(ArgumentParser args) {
+		return needsMetadata.test(args);
+	}
+
+	public void run(ArgumentParser args) throws Exception {
+		if (needsMetadata(args)) {
+			Main.loadMetadata();
+		}
+
+		try {
+			action.run(args);
+		} catch (Exception e) {
+			if (failureMessage == null) throw e;
+
+			throw new RuntimeException(failureMessage, e);
+		}
+	}
+
+	public interface Action {
+		void run(ArgumentParser args) throws Exception;
+	}
+}
@@ -24,6 +24,8 @@ import java.awt.Font;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -41,14 +43,15 @@ import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
+import javax.swing.Timer;
 import javax.swing.UIManager;
 import javax.swing.border.EmptyBorder;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
-import net.fabricmc.installer.util.ArgumentParser;
+import net.fabricmc.installer.util.ArtifactCache;
+import net.fabricmc.installer.util.FabricService;
 import net.fabricmc.installer.util.InstallerProgress;
 import net.fabricmc.installer.util.MetaHandler;
-import net.fabricmc.installer.util.MetaHandler.GameVersion;
 import net.fabricmc.installer.util.Utils;
 
 public abstract class Handler implements InstallerProgress {
@@ -56,6 +59,11 @@ public abstract class Handler implements InstallerProgress {
 	protected static final int VERTICAL_SPACING = 6;
 
 	private static final String SELECT_CUSTOM_ITEM = "(select custom)";
+	// Wait for the selection to settle before downloading anything
+	private static final int PREFETCH_DELAY_MS = 750;
+
+	// Shared by all tabs, only the visible one prefetches
+	private static Prefetcher prefetch;
 
 	public JButton buttonInstall;
 
@@ -68,14 +76,13 @@ public abstract class Handler implements InstallerProgress {
 	public JCheckBox snapshotCheckBox;
 
 	private JPanel pane;
+	private Timer prefetchTimer;
 
 	public abstract String name();
 
-	public abstract void install();
-
-	public abstract void installCli(ArgumentParser args) throws Exception;
+	protected abstract boolean isServer();
 
-	public abstract String cliHelp();
+	public abstract void install();
 
 	//this isnt great, but works
 	public void setupPane1(JPanel pane, GridBagConstraints c, InstallerGui installerGui) { }
@@ -90,12 +97,23 @@ public abstract class Handler implements InstallerProgress {
 		c.insets = new Insets(VERTICAL_SPACING, HORIZONTAL_SPACING, VERTICAL_SPACING, HORIZONTAL_SPACING);
 		c.gridx = c.gridy = 0;
 
+		prefetchTimer = new Timer(PREFETCH_DELAY_MS, e -> startPrefetch());
+		prefetchTimer.setRepeats(false);
+
+		pane.addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentShown(ComponentEvent e) {
+				prefetchTimer.restart();
+			}
+		});
+
 		setupPane1(pane, c, installerGui);
 
 		addRow(pane, c, "prompt.game.version",
 				gameVersionComboBox = new JComboBox<>(),
 				createSpacer(),
 				snapshotCheckBox = new JCheckBox(Utils.BUNDLE.getString("option.show.snapshots")));
+		gameVersionComboBox.addActionListener(e -> prefetchTimer.restart());
 		snapshotCheckBox.setSelected(false);
 		snapshotCheckBox.addActionListener(e -> {
 			if (Main.GAME_VERSION_META.isComplete()) {
@@ -109,6 +127,7 @@ public abstract class Handler implements InstallerProgress {
 
 		addRow(pane, c, "prompt.loader.version",
 				loaderVersionComboBox = new JComboBox<>());
+		loaderVersionComboBox.addActionListener(e -> prefetchTimer.restart());
 
 		addRow(pane, c, "prompt.select.location",
 				installLocation = new JTextField(20),
@@ -172,6 +191,27 @@ public abstract class Handler implements InstallerProgress {
 		InstallerGui.instance.updateSize(false);
 	}
 
+	/**
+	 * Start downloading the files for the selected versions into the prefetch cache, so the install can use them. Any
+	 * earlier prefetch is cancelled.
+	 */
+	private void startPrefetch() {
+		if (prefetch != null) {
+			prefetch.cancel();
+			prefetch = null;
+		}
+
+		ArtifactCache cache = FabricService.getPrefetchCache();
+		String gameVersion = (String) gameVersionComboBox.getSelectedItem();
+		String loaderVersion = (String) loaderVersionComboBox.getSelectedItem();
+
+		if (cache == null || !pane.isShowing() || gameVersion == null || loaderVersion == null || loaderVersion.equals(SELECT_CUSTOM_ITEM)) {
+			return;
+		}
+
+		prefetch = Prefetcher.prefetchInBackground(cache, gameVersion, loaderVersion, isServer());
+	}
+
 	protected LoaderVersion queryLoaderVersion() {
 		String ret = (String) loaderVersionComboBox.getSelectedItem();
 
@@ -288,19 +328,4 @@ public abstract class Handler implements InstallerProgress {
 		c.gridy++;
 		c.gridx = 0;
 	}
-
-	protected String getGameVersion(ArgumentParser args) {
-		return getVersion(args.get("mcversion"), args.has("snapshot"), Main.GAME_VERSION_META);
-	}
-
-	protected String getLoaderVersion(ArgumentParser args) {
-		return getVersion(args.get("loader"), false, Main.LOADER_META);
-	}
-
-	private static String getVersion(String name, boolean snapshot, MetaHandler meta) {
-		GameVersion ret = meta.parseVersion(name, snapshot);
-		if (ret == null) throw new IllegalArgumentException(String.format("unknown %s version: %s", meta.getName(), name));
-
-		return ret.getVersion();
-	}
 }
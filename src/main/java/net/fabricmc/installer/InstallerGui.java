@@ -23,6 +23,8 @@ import java.awt.Toolkit;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -35,10 +37,16 @@ import javax.swing.UnsupportedLookAndFeelException;
 import javax.swing.WindowConstants;
 import javax.xml.stream.XMLStreamException;
 
+import net.fabricmc.installer.client.ClientHandler;
+import net.fabricmc.installer.server.ServerHandler;
+import net.fabricmc.installer.util.ArtifactCache;
+import net.fabricmc.installer.util.FabricService;
 import net.fabricmc.installer.util.Utils;
 
 @SuppressWarnings("serial")
 public class InstallerGui extends JFrame {
+	public static final List<Handler> HANDLERS = Arrays.asList(new ClientHandler(), new ServerHandler());
+
 	public static InstallerGui instance;
 
 	private JTabbedPane contentPane;
@@ -78,6 +86,13 @@ public class InstallerGui extends JFrame {
 			UIManager.put("TabbedPane.foreground", Color.BLACK);
 		}
 
+		// Gives the background prefetch somewhere to put the files for the selected versions, the install only takes
+		// those files from it and is otherwise unaffected
+		if (!FabricService.isBundled() && !"false".equals(System.getProperty("fabric.installer.prefetch"))) {
+			ArtifactCache cache = FabricService.getCache();
+			FabricService.setPrefetchCache(cache != null ? cache : new ArtifactCache(ArtifactCache.defaultDir(), ArtifactCache.DEFAULT_TTL_MS));
+		}
+
 		InstallerGui dialog = new InstallerGui();
 		dialog.updateSize(true);
 		dialog.setTitle(Utils.BUNDLE.getString("installer.title"));
@@ -97,7 +112,7 @@ public class InstallerGui extends JFrame {
 
 	private void initComponents() {
 		contentPane = new JTabbedPane(JTabbedPane.TOP);
-		Main.HANDLERS.forEach(handler -> contentPane.addTab(Utils.BUNDLE.getString("tab." + handler.name().toLowerCase(Locale.ROOT)), handler.makePanel(this)));
+		HANDLERS.forEach(handler -> contentPane.addTab(Utils.BUNDLE.getString("tab." + handler.name().toLowerCase(Locale.ROOT)), handler.makePanel(this)));
 	}
 
 	private static void setTaskBarImage(Image image) {
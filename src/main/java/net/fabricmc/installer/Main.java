@@ -17,25 +17,28 @@
 package net.fabricmc.installer;
 
 import java.awt.GraphicsEnvironment;
-import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
 
-import net.fabricmc.installer.client.ClientHandler;
-import net.fabricmc.installer.server.ServerHandler;
+import net.fabricmc.installer.client.ClientCli;
+import net.fabricmc.installer.server.FleetInstaller;
+import net.fabricmc.installer.server.GarbageCollector;
+import net.fabricmc.installer.server.ServerCli;
 import net.fabricmc.installer.util.ArgumentParser;
+import net.fabricmc.installer.util.ArtifactCache;
 import net.fabricmc.installer.util.CrashDialog;
+import net.fabricmc.installer.util.DigestIndex;
 import net.fabricmc.installer.util.FabricService;
 import net.fabricmc.installer.util.MetaHandler;
+import net.fabricmc.installer.util.OfflineBundle;
 import net.fabricmc.installer.util.OperatingSystem;
 
 public class Main {
 	public static MetaHandler GAME_VERSION_META;
 	public static MetaHandler LOADER_META;
 
-	public static final List<Handler> HANDLERS = new ArrayList<>();
-
-	public static void main(String[] args) throws IOException {
+	public static void main(String[] args) throws Exception {
 		if (OperatingSystem.CURRENT == OperatingSystem.WINDOWS) {
 			// Use the operating system cert store
 			System.setProperty("javax.net.ssl.trustStoreType", "WINDOWS-ROOT");
@@ -45,9 +48,6 @@ public class Main {
 
 		System.out.println("Loading Fabric Installer: " + Main.class.getPackage().getImplementationVersion());
 
-		HANDLERS.add(new ClientHandler());
-		HANDLERS.add(new ServerHandler());
-
 		ArgumentParser argumentParser = ArgumentParser.create(args);
 		String command = argumentParser.getCommand().orElse(null);
 
@@ -59,45 +59,115 @@ public class Main {
 			FabricService.setFixed(metaUrl, mavenUrl);
 		}
 
-		GAME_VERSION_META = new MetaHandler("game", "v2/versions/game");
-		LOADER_META = new MetaHandler("loader", "v2/versions/loader");
+		//Fetch the Mojang manifests and server jars through a mirror, such as the one run by the mirror command
+		String externalUrl = argumentParser.get("externalurl");
+
+		if (externalUrl != null) {
+			FabricService.setExternalMirror(externalUrl);
+		}
+
+		//Install from an offline bundle created by the export command, without network access
+		String bundle = argumentParser.get("bundle");
+
+		if (bundle != null) {
+			FabricService.setBundle(OfflineBundle.open(Paths.get(bundle)));
+		}
 
-		//Default to the help command in a headless environment
-		if (GraphicsEnvironment.isHeadless() && command == null) {
-			command = "help";
+		//Serve downloads from a local artifact cache, filled by the prefetch command or on demand
+		ArtifactCache cache = null;
+
+		if (argumentParser.has("cache") || "prefetch".equals(command)) {
+			String cacheDir = argumentParser.get("cache");
+			cache = new ArtifactCache(cacheDir == null || cacheDir.isEmpty() ? ArtifactCache.defaultDir() : Paths.get(cacheDir), ArtifactCache.DEFAULT_TTL_MS);
+			FabricService.setCache(cache);
+		}
+
+		//Re-hash files instead of trusting the digest index
+		if (argumentParser.has("stricthash")) {
+			DigestIndex.setStrict(true);
 		}
 
+		GAME_VERSION_META = new MetaHandler("game", "v2/versions/game");
+		LOADER_META = new MetaHandler("loader", "v2/versions/loader");
+
 		if (command == null) {
-			try {
-				InstallerGui.start();
-			} catch (Exception e) {
-				e.printStackTrace();
-				new CrashDialog(e);
-			}
-		} else if (command.equals("help")) {
-			System.out.println("help - Opens this menu");
-			HANDLERS.forEach(handler -> System.out.printf("%s %s\n", handler.name().toLowerCase(), handler.cliHelp()));
-			loadMetadata();
-
-			System.out.printf("\nLatest Version: %s\nLatest Loader: %s\n", GAME_VERSION_META.getLatestVersion(argumentParser.has("snapshot")).getVersion(), Main.LOADER_META.getLatestVersion(false).getVersion());
-		} else {
-			loadMetadata();
-
-			for (Handler handler : HANDLERS) {
-				if (command.equalsIgnoreCase(handler.name())) {
-					try {
-						handler.installCli(argumentParser);
-					} catch (Exception e) {
-						throw new RuntimeException("Failed to install " + handler.name(), e);
-					}
-
-					return;
+			//Default to the help command in a headless environment, only the GUI touches AWT
+			if (GraphicsEnvironment.isHeadless()) {
+				command = "help";
+			} else {
+				prewarmConnections();
+
+				try {
+					InstallerGui.start();
+				} catch (Exception e) {
+					e.printStackTrace();
+					new CrashDialog(e);
 				}
+
+				return;
+			}
+		}
+
+		for (CliCommand cliCommand : getCommands(cache)) {
+			if (cliCommand.name.equalsIgnoreCase(command)) {
+				//Only commands loading the version lists are sure to contact the services, unlike the mirror, lock or pinned installs
+				if (cliCommand.needsMetadata(argumentParser)) prewarmConnections();
+
+				cliCommand.run(argumentParser);
+				return;
 			}
+		}
+
+		//Only reached if a command is not found
+		System.out.println("No handler found for " + args[0] + " see help");
+	}
+
+	//Connect to the services while the window is built or the command loads its inputs, the first requests can then reuse the connections
+	private static void prewarmConnections() {
+		if (!"false".equals(System.getProperty("fabric.installer.prewarm"))) {
+			FabricService.prewarmConnections();
+		}
+	}
 
-			//Only reached if a handler is not found
-			System.out.println("No handler found for " + args[0] + " see help");
+	/**
+	 * All command line commands, in the order listed by help.
+	 */
+	public static List<CliCommand> getCommands(ArtifactCache cache) {
+		return Arrays.asList(
+				// Lists the commands before loading the metadata, so they are shown offline as well
+				new CliCommand("help", "- Opens this menu", args -> false, null, args -> printHelp(args, cache)),
+				new CliCommand("client", ClientCli.CLI_HELP, Main::needsVersionLists, "Failed to install Client", ClientCli::installCli),
+				// Installing from a lock file doesn't need any metadata
+				new CliCommand("server", ServerCli.CLI_HELP, args -> !args.has("lock") && needsVersionLists(args), "Failed to install Server", ServerCli::installCli),
+				new CliCommand("fleet", FleetInstaller.CLI_HELP, args -> true, "Failed to install fleet", FleetInstaller::installCli),
+				new CliCommand("export", BundleExporter.CLI_HELP, args -> true, "Failed to export offline bundle", BundleExporter::exportCli),
+				new CliCommand("mirror", MirrorServer.CLI_HELP, args -> false, "Failed to start mirror", MirrorServer::runCli),
+				new CliCommand("prefetch", Prefetcher.CLI_HELP, args -> true, "Failed to prefetch", args -> Prefetcher.runCli(args, cache)),
+				new CliCommand("gc", GarbageCollector.CLI_HELP, args -> false, "Failed to remove unused files", GarbageCollector::runCli));
+	}
+
+	// Exact -mcversion and -loader values are used without downloading the version lists, unless -strict is passed.
+	// An unknown version or an invalid pair still fails, when its profile or server json is requested.
+	private static boolean needsVersionLists(ArgumentParser args) {
+		if (args.has("strict") || args.has("since") || !MetaHandler.isExact(args.get("loader"))) return true;
+
+		String gameVersions = args.get("mcversion");
+		if (gameVersions == null) return true;
+
+		for (String gameVersion : gameVersions.split(",")) {
+			if (!MetaHandler.isExact(gameVersion.trim())) return true;
 		}
+
+		return false;
+	}
+
+	private static void printHelp(ArgumentParser args, ArtifactCache cache) {
+		for (CliCommand command : getCommands(cache)) {
+			System.out.printf("%s %s\n", command.name, command.help);
+		}
+
+		loadMetadata();
+		System.out.printf("\nLatest Version: %s\nLatest Loader: %s\n", GAME_VERSION_META.getLatestVersion(args.has("snapshot")).getVersion(), LOADER_META.getLatestVersion(false).getVersion());
 	}
 
 	public static void loadMetadata() {
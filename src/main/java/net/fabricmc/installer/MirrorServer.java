@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import net.fabricmc.installer.util.ArgumentParser;
+import net.fabricmc.installer.util.ArtifactCache;
+
+/**
+ * Serves Fabric Meta, Fabric Maven and Mojang downloads from a local {@link ArtifactCache}, for example to every
+ * machine in a rack.
+ *
+ * <p>Other installers use it with {@code -metaurl http://host:port/meta/ -mavenurl http://host:port/maven/
+ * -externalurl http://host:port/external/}.
+ */
+public final class MirrorServer {
+	public static final String CLI_HELP = "-dir <cache directory> -port <port, default 8080> -bind <address> -ttl <meta refresh seconds, default 600> -threads <worker threads, default 16>";
+
+	private final ArtifactCache cache;
+
+	private MirrorServer(ArtifactCache cache) {
+		this.cache = cache;
+	}
+
+	public static void runCli(ArgumentParser args) throws IOException {
+		Path dir = args.has("dir") ? Paths.get(args.get("dir")) : ArtifactCache.defaultDir();
+		int port = Integer.parseInt(args.getOrDefault("port", () -> "8080"));
+		long ttlMs = args.has("ttl") ? TimeUnit.SECONDS.toMillis(Long.parseLong(args.get("ttl"))) : ArtifactCache.DEFAULT_TTL_MS;
+		int threads = Integer.parseInt(args.getOrDefault("threads", () -> "16"));
+		InetSocketAddress address = args.has("bind") ? new InetSocketAddress(args.get("bind"), port) : new InetSocketAddress(port);
+
+		MirrorServer mirror = new MirrorServer(new ArtifactCache(dir, ttlMs));
+		HttpServer server = HttpServer.create(address, 0);
+		AtomicInteger counter = new AtomicInteger();
+
+		server.createContext("/", mirror::handle);
+		server.setExecutor(Executors.newFixedThreadPool(threads, r -> new Thread(r, "Mirror Worker " + counter.incrementAndGet())));
+		server.start();
+
+		System.out.printf("Mirroring into %s on %s%n", mirror.cache.getDir(), server.getAddress());
+		System.out.printf("Use with: -metaurl http://<host>:%1$d/meta/ -mavenurl http://<host>:%1$d/maven/ -externalurl http://<host>:%1$d/external/%n", server.getAddress().getPort());
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			String method = exchange.getRequestMethod();
+
+			if (!method.equals("GET") && !method.equals("HEAD")) {
+				sendError(exchange, 405);
+				return;
+			}
+
+			String path = cachePath(exchange.getRequestURI().getPath());
+
+			if (path == null) {
+				sendError(exchange, 404);
+				return;
+			}
+
+			// Routing is by prefix, so the path must not be able to climb out of it, e.g. /maven/../external/<any host>/
+			if (!ArtifactCache.isNormalized(path)) {
+				sendError(exchange, 403);
+				return;
+			}
+
+			Path file;
+
+			try {
+				file = cache.get(path);
+			} catch (IllegalArgumentException e) {
+				sendError(exchange, 403);
+				return;
+			} catch (FileNotFoundException | NoSuchFileException e) {
+				sendError(exchange, 404);
+				return;
+			} catch (IOException e) {
+				System.err.printf("Failed to fetch %s: %s%n", path, e.getMessage());
+				sendError(exchange, 502);
+				return;
+			}
+
+			long size = Files.size(file);
+			exchange.getResponseHeaders().set("Content-Type", path.endsWith(".json") ? "application/json" : "application/octet-stream");
+
+			if (method.equals("HEAD")) {
+				exchange.getResponseHeaders().set("Content-Length", Long.toString(size));
+				exchange.sendResponseHeaders(200, -1);
+			} else {
+				exchange.sendResponseHeaders(200, size);
+
+				try (OutputStream os = exchange.getResponseBody()) {
+					Files.copy(file, os);
+				}
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Map a request path to the cache layout, meta responses are stored with a .json suffix.
+	 */
+	private static String cachePath(String requestPath) {
+		if (requestPath.startsWith("/meta/") && requestPath.length() > "/meta/".length()) {
+			return requestPath.substring(1) + ".json";
+		} else if (requestPath.startsWith("/maven/") || requestPath.startsWith("/external/")) {
+			return requestPath.substring(1);
+		} else {
+			return null;
+		}
+	}
+
+	private static void sendError(HttpExchange exchange, int code) throws IOException {
+		exchange.sendResponseHeaders(code, -1);
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import mjson.Json;
+
+import net.fabricmc.installer.util.ArgumentParser;
+import net.fabricmc.installer.util.ArtifactCache;
+import net.fabricmc.installer.util.FabricService;
+import net.fabricmc.installer.util.LauncherMeta;
+import net.fabricmc.installer.util.Library;
+import net.fabricmc.installer.util.MetaHandler;
+import net.fabricmc.installer.util.OfflineBundle;
+import net.fabricmc.installer.util.Utils;
+import net.fabricmc.installer.util.VersionMeta;
+
+/**
+ * Downloads everything needed to install a set of game and loader versions into the {@link ArtifactCache}, so the
+ * installs themselves can run from local disk.
+ */
+public final class Prefetcher {
+	public static final String CLI_HELP = "-mcversion <minecraft version(s), comma separated, or all> -mclatest <newest n minecraft versions> -loader <loader version(s), comma separated, or all> -loaderlatest <newest n loader versions> -snapshot -client -server <default both> -threads <default 8> -cache <cache directory>";
+
+	// Single low priority thread for the GUI, one prefetch at a time
+	private static final ExecutorService BACKGROUND = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "Background Prefetch");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		return thread;
+	});
+
+	private final ArtifactCache cache;
+	private final ExecutorService executor;
+	private volatile boolean cancelled;
+	private final AtomicInteger files = new AtomicInteger();
+	private final AtomicLong bytes = new AtomicLong();
+
+	/**
+	 * @param executor the executor to run the downloads on, or null to run them one after another on the calling thread
+	 */
+	private Prefetcher(ArtifactCache cache, ExecutorService executor) {
+		this.cache = cache;
+		this.executor = executor;
+	}
+
+	/**
+	 * @param cache the cache to fill, also set as the {@link FabricService} cache before loading any metadata
+	 */
+	public static void runCli(ArgumentParser args, ArtifactCache cache) throws IOException {
+		boolean snapshot = args.has("snapshot");
+		List<String> gameVersions = selectVersions(Main.GAME_VERSION_META, args.get("mcversion"), args.get("mclatest"), snapshot);
+		List<String> loaderVersions = selectVersions(Main.LOADER_META, args.get("loader"), args.get("loaderlatest"), false);
+		boolean client = args.has("client") || !args.has("server");
+		boolean server = args.has("server") || !args.has("client");
+		int threads = Integer.parseInt(args.getOrDefault("threads", () -> "8"));
+
+		System.out.printf("Prefetching %d minecraft and %d loader versions into %s%n", gameVersions.size(), loaderVersions.size(), cache.getDir());
+		long start = System.nanoTime();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "Prefetch");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			Prefetcher prefetcher = new Prefetcher(cache, executor);
+			prefetcher.prefetch(gameVersions, loaderVersions, client, server, server);
+
+			System.out.printf("Prefetched %d files (%d MiB) in %.1fs%n", prefetcher.files.get(), prefetcher.bytes.get() / (1024 * 1024), (System.nanoTime() - start) / 1e9);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Prefetch the files to install one game and loader version pair in the background, for example while the user is
+	 * still choosing. The vanilla server jar isn't included. Failures are only logged, the install reports them.
+	 *
+	 * @return the prefetch, to {@link #cancel} it with
+	 */
+	public static Prefetcher prefetchInBackground(ArtifactCache cache, String gameVersion, String loaderVersion, boolean server) {
+		Prefetcher prefetcher = new Prefetcher(cache, null);
+
+		BACKGROUND.execute(() -> {
+			try {
+				prefetcher.prefetch(Collections.singletonList(gameVersion), Collections.singletonList(loaderVersion), !server, server, false);
+			} catch (CancellationException e) {
+				// The selection changed
+			} catch (IOException | RuntimeException e) {
+				System.err.printf("Failed to prefetch %s %s: %s%n", gameVersion, loaderVersion, e);
+			}
+		});
+
+		return prefetcher;
+	}
+
+	/**
+	 * Stop a background prefetch before its next file. The file being downloaded is finished rather than interrupted,
+	 * an install may be waiting for the same download.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	private void prefetch(List<String> gameVersions, List<String> loaderVersions, boolean client, boolean server, boolean serverJar) throws IOException {
+		List<CompletableFuture<List<String>>> urlLists = new ArrayList<>();
+
+		// First pass: the json files listing the downloads
+		for (String gameVersion : gameVersions) {
+			for (String loaderVersion : loaderVersions) {
+				if (client) urlLists.add(async(() -> libraryUrls(String.format("v2/versions/loader/%s/%s/profile/json", gameVersion, loaderVersion))));
+				if (server) urlLists.add(async(() -> libraryUrls(String.format("v2/versions/loader/%s/%s/server/json", gameVersion, loaderVersion))));
+			}
+
+			if (serverJar) urlLists.add(async(() -> serverJarUrl(gameVersion)));
+		}
+
+		Set<String> urls = new LinkedHashSet<>();
+
+		for (CompletableFuture<List<String>> future : urlLists) {
+			urls.addAll(Utils.await(future));
+		}
+
+		// Second pass: the libraries and server jars themselves
+		List<CompletableFuture<Path>> downloads = new ArrayList<>(urls.size());
+
+		for (String url : urls) {
+			downloads.add(async(() -> fetch(OfflineBundle.urlPath(url))));
+		}
+
+		for (CompletableFuture<Path> future : downloads) {
+			Utils.await(future);
+		}
+	}
+
+	private List<String> libraryUrls(String metaPath) throws IOException {
+		Json json = Json.read(Utils.readString(fetch(OfflineBundle.metaPath(metaPath))));
+
+		return json.at("libraries").asJsonList().stream()
+				.map(library -> new Library(library).getURL())
+				.collect(Collectors.toList());
+	}
+
+	private List<String> serverJarUrl(String gameVersion) throws IOException {
+		LauncherMeta.Version version = LauncherMeta.findVersion(gameVersion);
+		if (version == null) throw new IOException("Failed to find version info for minecraft " + gameVersion);
+
+		VersionMeta.Download download = version.getVersionMeta().downloads.get("server");
+		if (download == null) throw new IOException("No server download for minecraft " + gameVersion);
+
+		List<String> ret = new ArrayList<>();
+		ret.add(download.url);
+		return ret;
+	}
+
+	private Path fetch(String path) throws IOException {
+		if (cancelled) throw new CancellationException();
+
+		Path file = cache.get(path);
+		files.incrementAndGet();
+		bytes.addAndGet(Files.size(file));
+		return file;
+	}
+
+	private <T> CompletableFuture<T> async(IOSupplier<T> supplier) throws IOException {
+		if (executor == null) return CompletableFuture.completedFuture(supplier.get());
+
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return supplier.get();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, executor);
+	}
+
+	private static List<String> selectVersions(MetaHandler meta, String list, String latest, boolean snapshot) {
+		if (list != null && !list.equalsIgnoreCase("all")) {
+			List<String> ret = new ArrayList<>();
+
+			for (String name : list.split(",")) {
+				MetaHandler.GameVersion version = meta.parseVersion(name.trim(), snapshot);
+				if (version == null) throw new IllegalArgumentException(String.format("unknown %s version: %s", meta.getName(), name));
+
+				ret.add(version.getVersion());
+			}
+
+			return ret;
+		}
+
+		int limit = latest != null ? Integer.parseInt(latest) : list != null ? Integer.MAX_VALUE : 1;
+
+		return meta.getVersions().stream()
+				.filter(version -> snapshot || version.isStable())
+				.limit(limit)
+				.map(MetaHandler.GameVersion::getVersion)
+				.collect(Collectors.toList());
+	}
+
+	private interface IOSupplier<T> {
+		T get() throws IOException;
+	}
+}
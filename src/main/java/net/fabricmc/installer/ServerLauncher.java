@@ -17,6 +17,7 @@
 package net.fabricmc.installer;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
@@ -33,19 +34,30 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.StringTokenizer;
+import java.util.concurrent.CompletableFuture;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 import java.util.zip.ZipError;
 
+import net.fabricmc.installer.server.GarbageCollector;
+import net.fabricmc.installer.server.InstallLock;
+import net.fabricmc.installer.server.InstallStamp;
 import net.fabricmc.installer.server.MinecraftServerDownloader;
 import net.fabricmc.installer.server.ServerInstaller;
+import net.fabricmc.installer.server.SharedLibraries;
+import net.fabricmc.installer.util.ArtifactCache;
+import net.fabricmc.installer.util.DigestIndex;
+import net.fabricmc.installer.util.FabricService;
 import net.fabricmc.installer.util.InstallerProgress;
+import net.fabricmc.installer.util.OfflineBundle;
 import net.fabricmc.installer.util.Utils;
 
 public final class ServerLauncher {
 	private static final String INSTALL_CONFIG_NAME = "install.properties";
 	private static final Path DATA_DIR = Paths.get(".fabric", "server");
+	private static final String EMBEDDED_BUNDLE_DIR = "bundle/";
+	private static final String EMBEDDED_BUNDLE_MARKER = EMBEDDED_BUNDLE_DIR + OfflineBundle.metaPath("v2/versions/game");
 
 	public static void main(String[] args) throws Throwable {
 		LaunchData launchData;
@@ -58,6 +70,21 @@ public final class ServerLauncher {
 
 		Objects.requireNonNull(launchData, "launchData is null, cannot proceed");
 
+		// Opt-in removal of files from previous installs with "true", "dryrun" only reports them
+		String gc = System.getProperty("fabric.installer.server.gc");
+
+		if (gc != null) {
+			if (gc.equalsIgnoreCase("true") || gc.equalsIgnoreCase("dryrun")) {
+				try {
+					GarbageCollector.collect(Paths.get("."), SharedLibraries.fromSystemProperties(), gc.equalsIgnoreCase("dryrun"));
+				} catch (IOException e) {
+					System.err.println("Failed to remove unused files: " + e.getMessage());
+				}
+			} else {
+				System.err.println("Ignoring fabric.installer.server.gc=" + gc + ", expected true or dryrun");
+			}
+		}
+
 		// Set the game jar path to bypass loader's own lookup
 		System.setProperty("fabric.gameJarPath", launchData.serverJar.toAbsolutePath().toString());
 
@@ -95,16 +122,97 @@ public final class ServerLauncher {
 		Path serverJar = customServerJar == null ? dataDir.resolve(String.format("%s-server.jar", gameVersion)) : Paths.get(customServerJar);
 		// Includes the mc version as this jar contains intermediary
 		Path serverLaunchJar = dataDir.resolve(String.format("fabric-loader-server-%s-minecraft-%s.jar", loaderVersion.name, gameVersion));
+		Path stampFile = baseDir.resolve(InstallStamp.FILE);
+
+		// Fast path, nothing has changed since the install was last verified
+		InstallStamp stamp = InstallStamp.read(stampFile);
+		boolean corrupt = false;
+
+		if (stamp != null && stamp.matches(gameVersion, loaderVersion.name, serverJar, serverLaunchJar)) {
+			if (!DigestIndex.isStrict() || stamp.verifyHashes()) {
+				return new LaunchData(serverJar, serverLaunchJar, stamp.mainClass);
+			}
+
+			// Same size and mtime but different content, don't trust any of the existing files
+			System.err.println("Detected modified files, reinstalling");
+			corrupt = true;
+		}
+
+		// Only needed to (re)install, so the fast path above doesn't mount the bundle within the launcher jar
+		setupSources();
+
+		// A lock from a previous install of the same versions pins every artifact, no metadata is needed to reinstall
+		Path lockFile = baseDir.resolve(InstallLock.FILE_NAME);
+
+		if (!Files.exists(lockFile)) {
+			extractEmbeddedLock(lockFile);
+		}
+
+		InstallLock lock = readLock(lockFile, gameVersion, loaderVersion);
+
+		// The server jar is independent of the loader install, fetch it in the background
+		CompletableFuture<Void> serverJarDownload;
+		MinecraftServerDownloader serverDownloader = null;
 
-		if (!Files.exists(serverJar)) {
+		if (corrupt || !Files.exists(serverJar)) {
 			InstallerProgress.CONSOLE.updateProgress(Utils.BUNDLE.getString("progress.download.minecraft"));
-			MinecraftServerDownloader downloader = new MinecraftServerDownloader(gameVersion);
-			downloader.downloadMinecraftServer(serverJar);
+			serverDownloader = lock != null && lock.serverJar != null ? new MinecraftServerDownloader(gameVersion, lock.serverJar) : new MinecraftServerDownloader(gameVersion);
+			serverJarDownload = serverDownloader.downloadMinecraftServerAsync(serverJar, baseDir);
+		} else {
+			serverJarDownload = CompletableFuture.completedFuture(null);
+		}
+
+		List<Path> classPath = new ArrayList<>();
+		String mainClass;
+
+		try {
+			mainClass = installLoader(baseDir, dataDir, loaderVersion, gameVersion, serverLaunchJar, classPath, !corrupt, lock);
+		} catch (IOException | RuntimeException e) {
+			try {
+				Utils.await(serverJarDownload);
+			} catch (IOException | RuntimeException e2) {
+				e.addSuppressed(e2);
+			}
+
+			throw e;
+		}
+
+		Utils.await(serverJarDownload);
+
+		if (serverDownloader != null) {
+			// A fresh install wrote a new lock, pin the server jar in it as well
+			lock = readLock(lockFile, gameVersion, loaderVersion);
+
+			if (lock != null && lock.serverJar == null) {
+				lock.withServerJar(serverDownloader.getServerDownload()).write(lockFile);
+			}
+		}
+
+		writeStamp(baseDir, stampFile, gameVersion, loaderVersion, mainClass, serverJar, serverLaunchJar, classPath);
+
+		return new LaunchData(serverJar, serverLaunchJar, mainClass);
+	}
+
+	private static void setupSources() throws IOException {
+		String bundle = System.getProperty("fabric.installer.bundle");
+
+		if (bundle != null) {
+			FabricService.setBundle(OfflineBundle.open(Paths.get(bundle)));
+		} else if (getEmbeddedResource(EMBEDDED_BUNDLE_MARKER) != null) {
+			// Artifacts embedded by the serverJar build with -PserverBundle, no network access is needed at all
+			FabricService.setBundle(OfflineBundle.open(getLauncherJar(), EMBEDDED_BUNDLE_DIR));
 		}
 
-		if (Files.exists(serverLaunchJar)) { // install exists, verify libs exist and determine main class
+		// Use a cache prefetched with the prefetch command, falling back to the network on a miss
+		if (System.getProperty("fabric.installer.cacheDir") != null) {
+			FabricService.setCache(new ArtifactCache(ArtifactCache.defaultDir(), ArtifactCache.DEFAULT_TTL_MS));
+		}
+	}
+
+	// Verifies or installs the loader and its libraries, returning the main class
+	private static String installLoader(Path baseDir, Path dataDir, LoaderVersion loaderVersion, String gameVersion, Path serverLaunchJar, List<Path> classPath, boolean reuseExisting, InstallLock lock) throws IOException {
+		if (reuseExisting && Files.exists(serverLaunchJar)) { // install exists, verify libs exist and determine main class
 			try {
-				List<Path> classPath = new ArrayList<>();
 				String mainClass = readManifest(serverLaunchJar, classPath);
 				boolean allPresent = true;
 
@@ -117,7 +225,7 @@ public final class ServerLauncher {
 
 				if (allPresent) {
 					// All seems good, no need to reinstall
-					return new LaunchData(serverJar, serverLaunchJar, mainClass);
+					return mainClass;
 				} else {
 					System.err.println("Detected incomplete install, reinstalling");
 				}
@@ -125,14 +233,63 @@ public final class ServerLauncher {
 				// Wont throw here, will try to reinstall
 				System.err.println("Failed to analyze or verify existing install: " + e.getMessage());
 			}
+
+			classPath.clear();
 		}
 
 		Files.createDirectories(dataDir);
-		ServerInstaller.install(baseDir, loaderVersion, gameVersion, InstallerProgress.CONSOLE, serverLaunchJar);
 
-		String mainClass = readManifest(serverLaunchJar, null);
+		if (lock != null) {
+			ServerInstaller.install(baseDir, lock, InstallerProgress.CONSOLE, serverLaunchJar, SharedLibraries.fromSystemProperties());
+		} else {
+			ServerInstaller.install(baseDir, loaderVersion, gameVersion, InstallerProgress.CONSOLE, serverLaunchJar, SharedLibraries.fromSystemProperties());
+		}
 
-		return new LaunchData(serverJar, serverLaunchJar, mainClass);
+		return readManifest(serverLaunchJar, classPath);
+	}
+
+	// Returns the lock if present and for the same versions, a lock for other versions is replaced by the next install
+	private static InstallLock readLock(Path lockFile, String gameVersion, LoaderVersion loaderVersion) {
+		if (!Files.exists(lockFile) || loaderVersion.path != null) return null;
+
+		try {
+			InstallLock lock = InstallLock.read(lockFile);
+			return lock.gameVersion.equals(gameVersion) && lock.loaderVersion.equals(loaderVersion.name) ? lock : null;
+		} catch (IOException e) {
+			System.err.println("Ignoring unreadable install lock: " + e.getMessage());
+			return null;
+		}
+	}
+
+	private static void writeStamp(Path baseDir, Path stampFile, String gameVersion, LoaderVersion loaderVersion, String mainClass, Path serverJar, Path launchJar, List<Path> classPath) {
+		try {
+			InstallStamp.create(baseDir, gameVersion, loaderVersion.name, mainClass, serverJar, launchJar, classPath).write(stampFile);
+		} catch (IOException e) {
+			// Not fatal, the next boot will just verify the install again
+			System.err.println("Failed to write install stamp: " + e.getMessage());
+		}
+	}
+
+	// Copy a lock embedded with -PserverLock, pinning the artifacts of the first install
+	private static void extractEmbeddedLock(Path lockFile) throws IOException {
+		URL embedded = getEmbeddedResource(EMBEDDED_BUNDLE_DIR + InstallLock.FILE_NAME);
+		if (embedded == null) return;
+
+		try (InputStream is = embedded.openStream()) {
+			Files.copy(is, lockFile);
+		}
+	}
+
+	private static URL getEmbeddedResource(String name) {
+		return ServerLauncher.class.getClassLoader().getResource(name);
+	}
+
+	private static Path getLauncherJar() throws IOException {
+		try {
+			return Paths.get(ServerLauncher.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+		} catch (URISyntaxException e) {
+			throw new IOException("Failed to locate the server launcher jar", e);
+		}
 	}
 
 	private static Properties readProperties() throws IOException {
@@ -163,9 +320,9 @@ public final class ServerLauncher {
 				throw new IOException("Jar does not have a Main-Class attribute");
 			}
 
-			if (classPathOut != null) {
-				String cp = manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+			String cp = manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
 
+			if (classPathOut != null && cp != null) { // no class path when the libraries are shaded into the launch jar
 				StringTokenizer tokenizer = new StringTokenizer(cp);
 				URL baseUrl = path.toUri().toURL();
 
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.client;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import net.fabricmc.installer.LoaderVersion;
+import net.fabricmc.installer.Main;
+import net.fabricmc.installer.util.ArgumentParser;
+import net.fabricmc.installer.util.InstallerProgress;
+import net.fabricmc.installer.util.MetaHandler;
+import net.fabricmc.installer.util.Utils;
+
+/**
+ * The client command, kept apart from {@link ClientHandler} so the command line never loads AWT or Swing.
+ */
+public final class ClientCli {
+	public static final String CLI_HELP = "-dir <install dir> -mcversion <minecraft version(s), comma separated, default latest> -since <install all stable minecraft versions since> -loader <loader version, default latest> -strict <check -mcversion and -loader against the version lists> -launcher [win32, microsoft_store]";
+
+	private ClientCli() {
+	}
+
+	public static void installCli(ArgumentParser args) throws Exception {
+		Path path = Paths.get(args.getOrDefault("dir", () -> Utils.findDefaultInstallDir().toString()));
+
+		if (!Files.exists(path)) {
+			throw new FileNotFoundException("Launcher directory not found at " + path);
+		}
+
+		List<String> gameVersions = getGameVersions(args);
+		LoaderVersion loaderVersion = new LoaderVersion(Main.LOADER_META.resolveVersion(args.get("loader"), false));
+
+		List<String> profileNames = ClientInstaller.install(path, gameVersions, loaderVersion, InstallerProgress.CONSOLE);
+
+		if (args.has("noprofile")) {
+			return;
+		}
+
+		ProfileInstaller profileInstaller = new ProfileInstaller(path);
+		List<ProfileInstaller.LauncherType> types = profileInstaller.getInstalledLauncherTypes();
+		ProfileInstaller.LauncherType launcherType = null;
+
+		if (args.has("launcher")) {
+			launcherType = ProfileInstaller.LauncherType.valueOf(args.get("launcher").toUpperCase(Locale.ROOT));
+		}
+
+		if (launcherType == null) {
+			if (types.size() == 0) {
+				throw new FileNotFoundException("Could not find a valid launcher profile .json");
+			} else if (types.size() == 1) {
+				// Only 1 launcher type found, install to that.
+				launcherType = types.get(0);
+			} else {
+				throw new FileNotFoundException("Multiple launcher installations were found, please specify the target launcher using -launcher");
+			}
+		}
+
+		Map<String, String> versions = new LinkedHashMap<>();
+
+		for (int i = 0; i < gameVersions.size(); i++) {
+			versions.put(profileNames.get(i), gameVersions.get(i));
+		}
+
+		profileInstaller.setupProfiles(versions, launcherType);
+	}
+
+	// Supports a comma separated -mcversion list, or every stable version since (and including) -since
+	private static List<String> getGameVersions(ArgumentParser args) {
+		if (args.has("since")) {
+			if (args.has("mcversion")) throw new IllegalArgumentException("-mcversion and -since can't be combined");
+
+			String since = args.get("since");
+			List<String> ret = new ArrayList<>();
+
+			// Versions are listed newest first
+			for (MetaHandler.GameVersion version : Main.GAME_VERSION_META.getVersions()) {
+				if (version.isStable()) ret.add(version.getVersion());
+				if (version.getVersion().equals(since)) return ret;
+			}
+
+			throw new IllegalArgumentException("unknown game version: " + since);
+		}
+
+		String mcVersion = args.get("mcversion");
+
+		if (mcVersion == null || mcVersion.indexOf(',') < 0) {
+			return Collections.singletonList(Main.GAME_VERSION_META.resolveVersion(mcVersion, args.has("snapshot")));
+		}
+
+		List<String> ret = new ArrayList<>();
+
+		for (String version : mcVersion.split(",")) {
+			ret.add(Main.GAME_VERSION_META.resolveVersion(version.trim(), args.has("snapshot")));
+		}
+
+		return ret;
+	}
+}
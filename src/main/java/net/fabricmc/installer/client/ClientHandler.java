@@ -21,13 +21,11 @@ import java.awt.Desktop;
 import java.awt.GridBagConstraints;
 import java.awt.Image;
 import java.awt.Toolkit;
-import java.io.FileNotFoundException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.MessageFormat;
 import java.util.List;
-import java.util.Locale;
 
 import javax.swing.ImageIcon;
 import javax.swing.JCheckBox;
@@ -41,8 +39,6 @@ import net.fabricmc.installer.Handler;
 import net.fabricmc.installer.InstallerGui;
 import net.fabricmc.installer.LoaderVersion;
 import net.fabricmc.installer.launcher.MojangLauncherHelperWrapper;
-import net.fabricmc.installer.util.ArgumentParser;
-import net.fabricmc.installer.util.InstallerProgress;
 import net.fabricmc.installer.util.NoopCaret;
 import net.fabricmc.installer.util.Reference;
 import net.fabricmc.installer.util.Utils;
@@ -55,6 +51,11 @@ public class ClientHandler extends Handler {
 		return "Client";
 	}
 
+	@Override
+	protected boolean isServer() {
+		return false;
+	}
+
 	@Override
 	public void install() {
 		if (MojangLauncherHelperWrapper.isMojangLauncherOpen()) {
@@ -183,50 +184,6 @@ public class ClientHandler extends Handler {
 		}
 	}
 
-	@Override
-	public void installCli(ArgumentParser args) throws Exception {
-		Path path = Paths.get(args.getOrDefault("dir", () -> Utils.findDefaultInstallDir().toString()));
-
-		if (!Files.exists(path)) {
-			throw new FileNotFoundException("Launcher directory not found at " + path);
-		}
-
-		String gameVersion = getGameVersion(args);
-		LoaderVersion loaderVersion = new LoaderVersion(getLoaderVersion(args));
-
-		String profileName = ClientInstaller.install(path, gameVersion, loaderVersion, InstallerProgress.CONSOLE);
-
-		if (args.has("noprofile")) {
-			return;
-		}
-
-		ProfileInstaller profileInstaller = new ProfileInstaller(path);
-		List<ProfileInstaller.LauncherType> types = profileInstaller.getInstalledLauncherTypes();
-		ProfileInstaller.LauncherType launcherType = null;
-
-		if (args.has("launcher")) {
-			launcherType = ProfileInstaller.LauncherType.valueOf(args.get("launcher").toUpperCase(Locale.ROOT));
-		}
-
-		if (launcherType == null) {
-			if (types.size() == 0) {
-				throw new FileNotFoundException("Could not find a valid launcher profile .json");
-			} else if (types.size() == 1) {
-				// Only 1 launcher type found, install to that.
-				launcherType = types.get(0);
-			} else {
-				throw new FileNotFoundException("Multiple launcher installations were found, please specify the target launcher using -launcher");
-			}
-		}
-
-		profileInstaller.setupProfile(profileName, gameVersion, launcherType);
-	}
-
-	@Override
-	public String cliHelp() {
-		return "-dir <install dir> -mcversion <minecraft version, default latest> -loader <loader version, default latest> -launcher [win32, microsoft_store]";
-	}
-
 	@Override
 	public void setupPane2(JPanel pane, GridBagConstraints c, InstallerGui installerGui) {
 		addRow(pane, c, null,
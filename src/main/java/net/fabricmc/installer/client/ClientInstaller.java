@@ -21,6 +21,10 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import mjson.Json;
 
@@ -33,6 +37,31 @@ import net.fabricmc.installer.util.Utils;
 
 public class ClientInstaller {
 	public static String install(Path mcDir, String gameVersion, LoaderVersion loaderVersion, InstallerProgress progress) throws IOException {
+		String profileName = install(mcDir, gameVersion, loaderVersion, progress, new HashSet<>());
+		progress.updateProgress(Utils.BUNDLE.getString("progress.done"));
+
+		return profileName;
+	}
+
+	/**
+	 * Install the loader for several game versions in one pass, downloading libraries shared between them only once.
+	 *
+	 * @return the profile names, in the same order as the game versions
+	 */
+	public static List<String> install(Path mcDir, List<String> gameVersions, LoaderVersion loaderVersion, InstallerProgress progress) throws IOException {
+		Set<String> downloadedLibraries = new HashSet<>();
+		List<String> profileNames = new ArrayList<>(gameVersions.size());
+
+		for (String gameVersion : gameVersions) {
+			profileNames.add(install(mcDir, gameVersion, loaderVersion, progress, downloadedLibraries));
+		}
+
+		progress.updateProgress(Utils.BUNDLE.getString("progress.done"));
+
+		return profileNames;
+	}
+
+	private static String install(Path mcDir, String gameVersion, LoaderVersion loaderVersion, InstallerProgress progress, Set<String> downloadedLibraries) throws IOException {
 		System.out.println("Installing " + gameVersion + " with fabric " + loaderVersion.name);
 
 		String profileName = String.format("%s-%s-%s", Reference.LOADER_NAME, loaderVersion.name, gameVersion);
@@ -62,13 +91,15 @@ public class ClientInstaller {
 			Path libraryFile = libsDir.resolve(library.getPath());
 			String url = library.getURL();
 
+			if (!downloadedLibraries.add(url)) {
+				continue; // already downloaded for another game version in this run
+			}
+
 			//System.out.println("Downloading "+url+" to "+libraryFile);
 			progress.updateProgress(new MessageFormat(Utils.BUNDLE.getString("progress.download.library.entry")).format(new Object[]{library.name}));
 			FabricService.downloadSubstitutedMaven(url, libraryFile);
 		}
 
-		progress.updateProgress(Utils.BUNDLE.getString("progress.done"));
-
 		return profileName;
 	}
 }
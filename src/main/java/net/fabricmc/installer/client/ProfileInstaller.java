@@ -21,8 +21,10 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import mjson.Json;
@@ -44,6 +46,15 @@ public class ProfileInstaller {
 	}
 
 	public void setupProfile(String name, String gameVersion, LauncherType launcherType) throws IOException {
+		setupProfiles(Collections.singletonMap(name, gameVersion), launcherType);
+	}
+
+	/**
+	 * Create or update the profiles for several installed versions, reading and writing the launcher profiles once.
+	 *
+	 * @param versions map of installed version name to game version
+	 */
+	public void setupProfiles(Map<String, String> versions, LauncherType launcherType) throws IOException {
 		Path launcherProfiles = mcDir.resolve(launcherType.profileJsonName);
 
 		if (!Files.exists(launcherProfiles)) {
@@ -61,16 +72,18 @@ public class ProfileInstaller {
 			jsonObject.set("profiles", profiles);
 		}
 
-		String profileName = Reference.LOADER_NAME + "-" + gameVersion;
+		for (Map.Entry<String, String> entry : versions.entrySet()) {
+			String profileName = Reference.LOADER_NAME + "-" + entry.getValue();
 
-		Json profile = profiles.at(profileName);
+			Json profile = profiles.at(profileName);
 
-		if (profile == null) {
-			profile = createProfile(profileName);
-			profiles.set(profileName, profile);
-		}
+			if (profile == null) {
+				profile = createProfile(profileName);
+				profiles.set(profileName, profile);
+			}
 
-		profile.set("lastVersionId", name);
+			profile.set("lastVersionId", entry.getKey());
+		}
 
 		Utils.writeToFile(launcherProfiles, jsonObject.toString());
 
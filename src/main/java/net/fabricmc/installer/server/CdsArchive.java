@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.List;
+
+import net.fabricmc.installer.util.Utils;
+
+/**
+ * Opt-in class data sharing archive for servers started through the generated launch scripts.
+ *
+ * <p>The first run dumps a dynamic CDS archive of every class loaded from the launch jar class path on exit, later runs
+ * map it instead of parsing and verifying those classes again. The JVM rejects an archive whose class path jars have
+ * changed but never rebuilds it, so the installer deletes the archive whenever the install fingerprint changes.
+ */
+public final class CdsArchive {
+	public static final Path DIR = Paths.get(".fabric", "cds");
+	public static final Path ARCHIVE = DIR.resolve("fabric-server.jsa");
+	private static final Path FINGERPRINT = DIR.resolve("fingerprint");
+
+	private CdsArchive() {
+	}
+
+	public static boolean isEnabled(Path installDir) {
+		return Files.isDirectory(installDir.resolve(DIR));
+	}
+
+	public static void enable(Path installDir) throws IOException {
+		Files.createDirectories(installDir.resolve(DIR));
+	}
+
+	/**
+	 * Delete the archive if it was created for a different set of class path jars.
+	 */
+	public static void update(Path installDir, Path launchJar, List<Path> libraryFiles) throws IOException {
+		if (!isEnabled(installDir)) {
+			return;
+		}
+
+		String fingerprint = fingerprint(launchJar, libraryFiles);
+		Path fingerprintFile = installDir.resolve(FINGERPRINT);
+
+		if (Files.exists(fingerprintFile) && Utils.readString(fingerprintFile).trim().equals(fingerprint)) {
+			return;
+		}
+
+		Files.deleteIfExists(installDir.resolve(ARCHIVE));
+		Utils.writeToFile(fingerprintFile, fingerprint);
+	}
+
+	// Covers the jar paths, sizes and modification times, which is what the JVM validates the archive against
+	static String fingerprint(Path launchJar, List<Path> libraryFiles) throws IOException {
+		MessageDigest digest = Utils.sha1Digest();
+		update(digest, launchJar);
+
+		for (Path file : libraryFiles) {
+			update(digest, file);
+		}
+
+		return Utils.bytesToHex(digest.digest());
+	}
+
+	private static void update(MessageDigest digest, Path file) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		String line = String.format("%s %d %d\n", file.toAbsolutePath().normalize(), attributes.size(), attributes.lastModifiedTime().toMillis());
+		digest.update(line.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Shell snippet selecting between dumping and using the archive, setting {@code CDS_ARGS}.
+	 */
+	static String shellArgs() {
+		String archive = ARCHIVE.toString().replace('\\', '/');
+
+		return "CDS_ARCHIVE=" + archive + "\n"
+				+ "if [ -f \"$CDS_ARCHIVE\" ]; then CDS_ARGS=\"-XX:SharedArchiveFile=$CDS_ARCHIVE\"; else CDS_ARGS=\"-XX:ArchiveClassesAtExit=$CDS_ARCHIVE\"; fi\n";
+	}
+
+	/**
+	 * Batch snippet selecting between dumping and using the archive, setting {@code CDS_ARGS}.
+	 */
+	static String batchArgs() {
+		String archive = ARCHIVE.toString().replace('/', '\\');
+
+		return "set CDS_ARCHIVE=" + archive + "\n"
+				+ "if exist \"%CDS_ARCHIVE%\" (set CDS_ARGS=-XX:SharedArchiveFile=%CDS_ARCHIVE%) else (set CDS_ARGS=-XX:ArchiveClassesAtExit=%CDS_ARCHIVE%)\n";
+	}
+}
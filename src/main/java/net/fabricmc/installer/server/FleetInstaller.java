@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.server;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import mjson.Json;
+
+import net.fabricmc.installer.LoaderVersion;
+import net.fabricmc.installer.Main;
+import net.fabricmc.installer.util.ArgumentParser;
+import net.fabricmc.installer.util.DigestIndex;
+import net.fabricmc.installer.util.FabricService;
+import net.fabricmc.installer.util.InstallerProgress;
+import net.fabricmc.installer.util.LauncherMeta;
+import net.fabricmc.installer.util.MetaHandler;
+import net.fabricmc.installer.util.Utils;
+import net.fabricmc.installer.util.VersionMeta;
+
+/**
+ * Installs many servers in a single process from a JSON manifest.
+ *
+ * <p>The manifest is an array of objects with a {@code dir}, optional {@code game} and {@code loader} versions
+ * (defaulting to the latest stable) and an optional {@code downloadMinecraft} flag. Version metadata is loaded once,
+ * libraries and server jars are downloaded once into a shared directory and linked into every install.
+ */
+public final class FleetInstaller {
+	public static final String CLI_HELP = "-manifest <json file> -threads <concurrent installs, default 4> -libraries <shared library dir, default temporary> -librarymode [link, classpath]";
+
+	private FleetInstaller() {
+	}
+
+	public static void installCli(ArgumentParser args) throws Exception {
+		Path manifestFile = Paths.get(args.getOrDefault("manifest", () -> {
+			throw new IllegalArgumentException("-manifest is required");
+		}));
+		Path manifestDir = manifestFile.toAbsolutePath().getParent();
+		int threads = Integer.parseInt(args.getOrDefault("threads", () -> "4"));
+
+		List<Entry> entries = new ArrayList<>();
+
+		for (Json json : Json.read(Utils.readString(manifestFile)).asJsonList()) {
+			entries.add(new Entry(manifestDir, json));
+		}
+
+		Path sharedDir;
+		SharedLibraries.Mode mode;
+
+		if (args.has("libraries")) {
+			sharedDir = Paths.get(args.get("libraries"));
+			mode = SharedLibraries.Mode.parse(args.get("librarymode"), "-librarymode");
+		} else {
+			// Only used to deduplicate downloads, the installs get their own links or copies
+			sharedDir = Files.createTempDirectory("fabric-fleet");
+			mode = SharedLibraries.Mode.LINK;
+		}
+
+		SharedLibraries sharedLibraries = new SharedLibraries(sharedDir, mode);
+
+		if (entries.stream().anyMatch(entry -> entry.downloadMinecraft)) {
+			// Load the version manifest once up front rather than racing to load it from every install
+			LauncherMeta.getLauncherMeta();
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<>();
+
+		try {
+			for (Entry entry : entries) {
+				futures.add(executor.submit(() -> {
+					entry.install(sharedLibraries);
+					return null;
+				}));
+			}
+
+			for (int i = 0; i < entries.size(); i++) {
+				try {
+					Utils.await(futures.get(i));
+				} catch (Exception e) {
+					entries.get(i).failure = e;
+				}
+			}
+		} finally {
+			executor.shutdown();
+
+			if (!args.has("libraries")) {
+				deleteRecursively(sharedDir);
+			}
+		}
+
+		printSummary(entries);
+	}
+
+	private static void printSummary(List<Entry> entries) {
+		int failed = 0;
+
+		System.out.println();
+		System.out.println("Fleet install summary:");
+
+		for (Entry entry : entries) {
+			String status;
+
+			if (entry.failure == null) {
+				status = "OK    ";
+			} else {
+				status = "FAILED";
+				failed++;
+			}
+
+			System.out.printf("%s %s (minecraft %s, loader %s) %d ms%s%n", status, entry.dir, entry.gameVersion, entry.loaderVersion, entry.millis,
+					entry.failure == null ? "" : ": " + entry.failure);
+		}
+
+		if (failed > 0) {
+			throw new RuntimeException(String.format("%d of %d installs failed", failed, entries.size()));
+		}
+	}
+
+	private static void deleteRecursively(Path dir) throws IOException {
+		try (Stream<Path> stream = Files.walk(dir)) {
+			for (Path path : (Iterable<Path>) stream.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	private static final class Entry {
+		final Path dir;
+		final String gameVersion;
+		final String loaderVersion;
+		final boolean downloadMinecraft;
+		long millis;
+		Exception failure;
+
+		Entry(Path manifestDir, Json json) {
+			if (!json.has("dir")) throw new IllegalArgumentException("Manifest entry without dir: " + json);
+
+			dir = manifestDir.resolve(json.at("dir").asString()).normalize();
+			gameVersion = resolve(json.at("game"), Main.GAME_VERSION_META);
+			loaderVersion = resolve(json.at("loader"), Main.LOADER_META);
+			downloadMinecraft = json.has("downloadMinecraft") && json.at("downloadMinecraft").asBoolean();
+		}
+
+		private static String resolve(Json value, MetaHandler meta) {
+			String name = value == null ? null : value.asString();
+			MetaHandler.GameVersion ret = meta.parseVersion(name, false);
+			if (ret == null) throw new IllegalArgumentException(String.format("unknown %s version: %s", meta.getName(), name));
+
+			return ret.getVersion();
+		}
+
+		void install(SharedLibraries sharedLibraries) throws IOException {
+			long start = System.nanoTime();
+			String name = dir.getFileName().toString();
+			InstallerProgress progress = new InstallerProgress() {
+				@Override
+				public void updateProgress(String text) {
+					System.out.printf("[%s] %s%n", name, text);
+				}
+
+				@Override
+				public void error(Throwable throwable) {
+					throw new RuntimeException(throwable);
+				}
+			};
+
+			try {
+				Files.createDirectories(dir);
+				ServerInstaller.install(dir, new LoaderVersion(loaderVersion), gameVersion, progress, dir.resolve(ServerInstaller.DEFAULT_LAUNCH_JAR_NAME), sharedLibraries);
+
+				if (downloadMinecraft) {
+					progress.updateProgress(Utils.BUNDLE.getString("progress.download.minecraft"));
+
+					// Each game version is downloaded once into the shared directory
+					Path sharedServerJar = sharedLibraries.getDir().resolve("minecraft").resolve(gameVersion + "-server.jar");
+
+					// The version json is only loaded once per game version
+					VersionMeta.Download server = new MinecraftServerDownloader(gameVersion).getServerDownload();
+					// fetch already locks the shared file, so download straight into its temporary file
+					sharedLibraries.fetch(sharedServerJar, tmp -> FabricService.downloadSubstitutedMaven(server.url, tmp, server.sha1));
+
+					Path serverJar = dir.resolve("server.jar");
+					Utils.linkOrCopy(sharedServerJar, serverJar);
+					// Verified when downloaded, later installs into dir don't need to hash it again
+					DigestIndex.put(dir.resolve(ServerInstaller.DIGEST_INDEX), serverJar, server.sha1);
+				}
+			} finally {
+				millis = (System.nanoTime() - start) / 1_000_000;
+			}
+		}
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import net.fabricmc.installer.util.ArgumentParser;
+import net.fabricmc.installer.util.FileLocks;
+import net.fabricmc.installer.util.Library;
+
+/**
+ * Removes launch jars, server jars and libraries left behind by previous installs of other versions.
+ *
+ * <p>The live set is taken from the install stamp written by the server launcher and the install lock, only files
+ * referenced by neither are removed. Within {@code libraries/} only files recorded in the {@link #HISTORY_FILE install
+ * history} are candidates, as the vanilla server and operators put files there too. The server launcher's data
+ * directory belongs to the installer and is scanned as a whole. The lock files of the download lock directories are
+ * removed unless another installer is using them.
+ */
+public final class GarbageCollector {
+	public static final String CLI_HELP = "-dir <server dir, default current dir> -libraries <shared library dir, only its unused locks are removed> -dryrun <only report what would be removed>";
+	/** Every library file installed into the server directory, one path relative to it per line. */
+	public static final Path HISTORY_FILE = Paths.get(".fabric", "server", "installed-files.txt");
+
+	private final Path dir;
+	private final boolean dryRun;
+	private int files;
+	private long bytes;
+
+	private GarbageCollector(Path dir, boolean dryRun) {
+		this.dir = dir;
+		this.dryRun = dryRun;
+	}
+
+	public static void runCli(ArgumentParser args) throws IOException {
+		Path dir = Paths.get(args.getOrDefault("dir", () -> ".")).toAbsolutePath().normalize();
+		SharedLibraries sharedLibraries = args.has("libraries") ? new SharedLibraries(Paths.get(args.get("libraries")), SharedLibraries.Mode.LINK) : null;
+		collect(dir, sharedLibraries, args.has("dryrun"));
+	}
+
+	public static void collect(Path dir, boolean dryRun) throws IOException {
+		collect(dir, null, dryRun);
+	}
+
+	/**
+	 * Delete, or with dryRun only report, all files of the install in dir that aren't used by its current version.
+	 *
+	 * @param sharedLibraries the shared library directory used by the install, or null
+	 */
+	public static void collect(Path dir, SharedLibraries sharedLibraries, boolean dryRun) throws IOException {
+		dir = dir.toAbsolutePath().normalize();
+		Set<Path> live = findLiveSet(dir);
+		GarbageCollector gc = new GarbageCollector(dir, dryRun);
+
+		gc.collectDataDir(dir.resolve(InstallStamp.FILE).getParent(), live);
+		gc.collectLibraries(dir.resolve("libraries"), readHistory(dir), live);
+		gc.collectLocks(dir.resolve(ServerInstaller.LOCK_DIR));
+
+		if (sharedLibraries != null) {
+			gc.collectLocks(sharedLibraries.getDir().resolve(FileLocks.LOCK_DIR));
+		}
+
+		System.out.printf("%s %d files, %.1f MiB%n", dryRun ? "Would remove" : "Removed", gc.files, gc.bytes / (1024.0 * 1024));
+	}
+
+	/**
+	 * Add files written by an install to the install history of dir, making them candidates for removal once unused.
+	 */
+	static synchronized void record(Path dir, Collection<Path> files) throws IOException {
+		dir = dir.toAbsolutePath().normalize();
+		Set<Path> history = readHistory(dir);
+		List<String> lines = new ArrayList<>();
+
+		for (Path file : files) {
+			file = normalize(file);
+
+			// Files in a shared library directory aren't part of the install
+			if (file.startsWith(dir) && history.add(file)) {
+				lines.add(dir.relativize(file).toString().replace('\\', '/'));
+			}
+		}
+
+		if (lines.isEmpty()) return;
+
+		Path historyFile = dir.resolve(HISTORY_FILE);
+		Files.createDirectories(historyFile.getParent());
+		Files.write(historyFile, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	private static Set<Path> readHistory(Path dir) throws IOException {
+		Set<Path> history = new LinkedHashSet<>();
+		Path historyFile = dir.resolve(HISTORY_FILE);
+
+		if (Files.exists(historyFile)) {
+			for (String line : Files.readAllLines(historyFile, StandardCharsets.UTF_8)) {
+				if (!line.isEmpty()) history.add(normalize(dir.resolve(line)));
+			}
+		}
+
+		return history;
+	}
+
+	private static Set<Path> findLiveSet(Path dir) throws IOException {
+		Set<Path> live = new HashSet<>();
+		boolean found = false;
+
+		InstallStamp stamp = InstallStamp.read(dir.resolve(InstallStamp.FILE));
+
+		if (stamp != null) {
+			found = true;
+			live.add(normalize(stamp.serverJar.path));
+			live.add(normalize(stamp.launchJar.path));
+			stamp.classPath.forEach(entry -> live.add(normalize(entry.path)));
+		}
+
+		Path lockFile = dir.resolve(InstallLock.FILE_NAME);
+
+		if (Files.exists(lockFile)) {
+			found = true;
+
+			for (InstallLock.Artifact artifact : InstallLock.read(lockFile).libraries) {
+				live.add(normalize(dir.resolve("libraries").resolve(new Library(artifact.name, null, null).getPath())));
+			}
+		}
+
+		// Without either, every file would look unused
+		if (!found) throw new IOException("No install stamp or install lock found in " + dir + ", can't determine which files are in use");
+
+		return live;
+	}
+
+	private void collectDataDir(Path dataDir, Set<Path> live) throws IOException {
+		if (!Files.isDirectory(dataDir)) return;
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dataDir)) {
+			for (Path file : stream) {
+				String name = file.getFileName().toString();
+
+				// Launch jars, server jars and interrupted downloads, leave the stamp and digest index alone
+				if (name.endsWith(".jar") || name.endsWith(".tmp")) {
+					collect(file, live);
+				}
+			}
+		}
+	}
+
+	private void collectLibraries(Path libsDir, Set<Path> history, Set<Path> live) throws IOException {
+		libsDir = normalize(libsDir);
+		Set<Path> remaining = new LinkedHashSet<>();
+
+		for (Path file : history) {
+			// Never touch anything outside libraries/, whatever the history says
+			if (!file.startsWith(libsDir)) continue;
+
+			if (!Files.isRegularFile(file)) continue;
+
+			if (live.contains(file)) {
+				remaining.add(file);
+			} else {
+				collect(file, live);
+				if (!dryRun) deleteEmptyParents(file.getParent(), libsDir);
+			}
+		}
+
+		if (!dryRun) {
+			writeHistory(remaining);
+		}
+	}
+
+	// Every downloaded file leaves a lock file behind, remove them while no other installer uses the directory
+	private void collectLocks(Path lockDir) throws IOException {
+		for (Path file : FileLocks.deleteUnused(lockDir, dryRun)) {
+			report(file, 0);
+		}
+	}
+
+	private void writeHistory(Set<Path> files) throws IOException {
+		Path historyFile = dir.resolve(HISTORY_FILE);
+		if (!Files.exists(historyFile)) return;
+
+		List<String> lines = files.stream().map(file -> dir.relativize(file).toString().replace('\\', '/')).collect(Collectors.toList());
+		Path tmp = historyFile.resolveSibling(historyFile.getFileName() + ".tmp");
+		Files.write(tmp, lines, StandardCharsets.UTF_8);
+		Files.move(tmp, historyFile, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private void collect(Path file, Set<Path> live) throws IOException {
+		if (live.contains(normalize(file))) return;
+
+		long size = Files.size(file);
+
+		if (!dryRun) {
+			Files.delete(file);
+		}
+
+		report(file, size);
+	}
+
+	private void report(Path file, long size) {
+		System.out.printf("%s %s (%d KiB)%n", dryRun ? "Unused" : "Removing", file.startsWith(dir) ? dir.relativize(file) : file, size / 1024);
+		files++;
+		bytes += size;
+	}
+
+	// Deletes dir and its parents up to, but excluding, root while they are empty
+	private static void deleteEmptyParents(Path dir, Path root) throws IOException {
+		while (!dir.equals(root) && dir.startsWith(root)) {
+			try (Stream<Path> stream = Files.list(dir)) {
+				if (stream.findAny().isPresent()) return;
+			}
+
+			Files.delete(dir);
+			dir = dir.getParent();
+		}
+	}
+
+	private static Path normalize(Path path) {
+		return path.toAbsolutePath().normalize();
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.server;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import mjson.Json;
+
+import net.fabricmc.installer.util.Utils;
+import net.fabricmc.installer.util.VersionMeta;
+
+/**
+ * The exact artifact set of a server install, written next to it as {@value #FILE_NAME}.
+ *
+ * <p>Installing from a lock skips all metadata queries and verifies every download against the recorded hash, so
+ * the same lock always produces the same install.
+ */
+public final class InstallLock {
+	public static final String FILE_NAME = "install.lock";
+	private static final int FORMAT_VERSION = 1;
+
+	public final String gameVersion;
+	public final String loaderVersion;
+	/** The main class loader launches, from the loader metadata. */
+	public final String launchMainClass;
+	/** The Main-Class of the generated launch jar, from the loader jar manifest. */
+	public final String jarMainClass;
+	public final List<Artifact> libraries;
+	/** The vanilla server jar, or null if it wasn't downloaded by the installer. */
+	public final VersionMeta.Download serverJar;
+
+	InstallLock(String gameVersion, String loaderVersion, String launchMainClass, String jarMainClass, List<Artifact> libraries, VersionMeta.Download serverJar) {
+		this.gameVersion = gameVersion;
+		this.loaderVersion = loaderVersion;
+		this.launchMainClass = launchMainClass;
+		this.jarMainClass = jarMainClass;
+		this.libraries = Collections.unmodifiableList(libraries);
+		this.serverJar = serverJar;
+	}
+
+	public InstallLock withServerJar(VersionMeta.Download serverJar) {
+		return new InstallLock(gameVersion, loaderVersion, launchMainClass, jarMainClass, libraries, serverJar);
+	}
+
+	public static InstallLock read(Path file) throws IOException {
+		Json json = Json.read(Utils.readString(file));
+
+		try {
+			if (json.at("formatVersion").asInteger() != FORMAT_VERSION) {
+				throw new IOException("Unsupported install lock format " + json.at("formatVersion") + " in " + file);
+			}
+
+			List<Artifact> libraries = new ArrayList<>();
+
+			for (Json library : json.at("libraries").asJsonList()) {
+				libraries.add(new Artifact(library.at("name").asString(), library.at("url").asString(), library.at("sha1").asString(), library.at("size").asLong()));
+			}
+
+			Json mainClass = json.at("mainClass");
+
+			return new InstallLock(json.at("gameVersion").asString(), json.at("loaderVersion").asString(),
+					mainClass.at("launch").asString(), mainClass.at("manifest").asString(),
+					libraries, json.has("server") ? new VersionMeta.Download(json.at("server")) : null);
+		} catch (RuntimeException e) {
+			throw new IOException("Invalid install lock " + file, e);
+		}
+	}
+
+	public void write(Path file) throws IOException {
+		Json libraryArray = Json.array();
+
+		for (Artifact library : libraries) {
+			libraryArray.add(Json.object()
+					.set("name", library.name)
+					.set("url", library.url)
+					.set("sha1", library.sha1)
+					.set("size", library.size));
+		}
+
+		Json json = Json.object()
+				.set("formatVersion", FORMAT_VERSION)
+				.set("gameVersion", gameVersion)
+				.set("loaderVersion", loaderVersion)
+				.set("mainClass", Json.object().set("launch", launchMainClass).set("manifest", jarMainClass))
+				.set("libraries", libraryArray);
+
+		if (serverJar != null) {
+			json.set("server", Json.object().set("url", serverJar.url).set("sha1", serverJar.sha1).set("size", serverJar.size));
+		}
+
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		Utils.writeToFile(tmp, json.toString());
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	public static final class Artifact {
+		/** Maven coordinates, also determining the location within the libraries directory. */
+		public final String name;
+		public final String url;
+		public final String sha1;
+		public final long size;
+
+		public Artifact(String name, String url, String sha1, long size) {
+			this.name = name;
+			this.url = url;
+			this.sha1 = sha1;
+			this.size = size;
+		}
+	}
+}
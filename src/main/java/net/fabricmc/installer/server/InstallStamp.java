@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import net.fabricmc.installer.util.BulkHasher;
+import net.fabricmc.installer.util.DigestIndex;
+import net.fabricmc.installer.util.Utils;
+
+/**
+ * Records the state of a server install after it has been fully verified.
+ *
+ * <p>On the next boot the stamp is checked against the file system using only the recorded sizes and modification
+ * times, avoiding opening the launch jar, resolving its class path and hashing the server jar. Any difference causes
+ * the caller to fall back to full verification. The recorded hashes of every file are only compared in strict mode.
+ */
+public final class InstallStamp {
+	/** The stamp written by the server launcher, relative to the server directory. */
+	public static final Path FILE = Paths.get(".fabric", "server", "install.stamp");
+	private static final String FORMAT_VERSION = "2";
+
+	public final String gameVersion;
+	public final String loaderVersion;
+	public final String mainClass;
+	public final Entry serverJar;
+	public final Entry launchJar;
+	public final List<Entry> classPath;
+
+	private InstallStamp(String gameVersion, String loaderVersion, String mainClass, Entry serverJar, Entry launchJar, List<Entry> classPath) {
+		this.gameVersion = gameVersion;
+		this.loaderVersion = loaderVersion;
+		this.mainClass = mainClass;
+		this.serverJar = serverJar;
+		this.launchJar = launchJar;
+		this.classPath = classPath;
+	}
+
+	/**
+	 * Create a stamp describing the current state of the given files, hashing all of them concurrently.
+	 *
+	 * @param dir the server directory, its digest index is used for the server jar
+	 */
+	public static InstallStamp create(Path dir, String gameVersion, String loaderVersion, String mainClass, Path serverJar, Path launchJar, List<Path> classPath) throws IOException {
+		try (BulkHasher hasher = new BulkHasher()) {
+			Map<Path, CompletableFuture<String>> hashes = hasher.sha1Strings(classPath);
+			CompletableFuture<String> launchJarHash = hasher.sha1String(launchJar);
+			List<Entry> classPathEntries = new ArrayList<>(classPath.size());
+
+			for (Path path : classPath) {
+				classPathEntries.add(Entry.of(path, Utils.await(hashes.get(path))));
+			}
+
+			// The server jar is by far the largest file and usually already in the digest index
+			return new InstallStamp(gameVersion, loaderVersion, mainClass,
+					Entry.of(serverJar, DigestIndex.sha1String(dir.resolve(ServerInstaller.DIGEST_INDEX), serverJar)),
+					Entry.of(launchJar, Utils.await(launchJarHash)),
+					Collections.unmodifiableList(classPathEntries));
+		}
+	}
+
+	/**
+	 * Read a previously written stamp.
+	 *
+	 * @return the stamp, or null if it is missing, unreadable or was written in a different format
+	 */
+	public static InstallStamp read(Path file) {
+		Properties properties = new Properties();
+
+		try (InputStream is = Files.newInputStream(file)) {
+			properties.load(is);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			System.err.println("Failed to read install stamp: " + e.getMessage());
+			return null;
+		}
+
+		if (!FORMAT_VERSION.equals(properties.getProperty("format"))) {
+			return null;
+		}
+
+		try {
+			int count = Integer.parseInt(properties.getProperty("class-path.count"));
+			List<Entry> classPath = new ArrayList<>(count);
+
+			for (int i = 0; i < count; i++) {
+				classPath.add(Entry.read(properties, "class-path." + i));
+			}
+
+			return new InstallStamp(
+					Objects.requireNonNull(properties.getProperty("game-version")),
+					Objects.requireNonNull(properties.getProperty("loader-version")),
+					Objects.requireNonNull(properties.getProperty("main-class")),
+					Entry.read(properties, "server-jar"),
+					Entry.read(properties, "launch-jar"),
+					Collections.unmodifiableList(classPath));
+		} catch (RuntimeException e) {
+			// Corrupt or hand edited, treat as missing
+			return null;
+		}
+	}
+
+	public void write(Path file) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("format", FORMAT_VERSION);
+		properties.setProperty("game-version", gameVersion);
+		properties.setProperty("loader-version", loaderVersion);
+		properties.setProperty("main-class", mainClass);
+		serverJar.write(properties, "server-jar");
+		launchJar.write(properties, "launch-jar");
+		properties.setProperty("class-path.count", Integer.toString(classPath.size()));
+
+		for (int i = 0; i < classPath.size(); i++) {
+			classPath.get(i).write(properties, "class-path." + i);
+		}
+
+		Path tmp = file.resolveSibling(file.getFileName().toString() + ".tmp");
+
+		try (OutputStream os = Files.newOutputStream(tmp)) {
+			properties.store(os, "Fabric server install stamp, delete to force verification");
+		}
+
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Check whether this stamp still describes the install, without reading any of the recorded files.
+	 */
+	public boolean matches(String gameVersion, String loaderVersion, Path serverJar, Path launchJar) {
+		if (!this.gameVersion.equals(gameVersion)
+				|| !this.loaderVersion.equals(loaderVersion)
+				|| !this.serverJar.path.equals(serverJar)
+				|| !this.launchJar.path.equals(launchJar)) {
+			return false;
+		}
+
+		if (!this.serverJar.isUnchanged() || !this.launchJar.isUnchanged()) {
+			return false;
+		}
+
+		for (Entry entry : classPath) {
+			if (!entry.isUnchanged()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Re-hash every recorded file and compare against the stamp, for use in strict mode.
+	 */
+	public boolean verifyHashes() throws IOException {
+		List<Entry> entries = new ArrayList<>(classPath.size() + 2);
+		entries.add(serverJar);
+		entries.add(launchJar);
+		entries.addAll(classPath);
+
+		try (BulkHasher hasher = new BulkHasher()) {
+			Map<Path, CompletableFuture<String>> hashes = hasher.sha1Strings(entries.stream().map(entry -> entry.path).collect(Collectors.toList()));
+
+			for (Entry entry : entries) {
+				if (entry.sha1 == null || !entry.sha1.equalsIgnoreCase(Utils.await(hashes.get(entry.path)))) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	public static final class Entry {
+		public final Path path;
+		public final long size;
+		public final long lastModified;
+		public final String sha1;
+
+		private Entry(Path path, long size, long lastModified, String sha1) {
+			this.path = path;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.sha1 = sha1;
+		}
+
+		static Entry of(Path path, String sha1) throws IOException {
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			return new Entry(path, attributes.size(), attributes.lastModifiedTime().toMillis(), sha1);
+		}
+
+		static Entry read(Properties properties, String key) {
+			return new Entry(
+					Paths.get(Objects.requireNonNull(properties.getProperty(key))),
+					Long.parseLong(properties.getProperty(key + ".size")),
+					Long.parseLong(properties.getProperty(key + ".mtime")),
+					Objects.requireNonNull(properties.getProperty(key + ".sha1")));
+		}
+
+		void write(Properties properties, String key) {
+			properties.setProperty(key, path.toString());
+			properties.setProperty(key + ".size", Long.toString(size));
+			properties.setProperty(key + ".mtime", Long.toString(lastModified));
+			properties.setProperty(key + ".sha1", sha1);
+		}
+
+		boolean isUnchanged() {
+			try {
+				BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+				return attributes.isRegularFile() && attributes.size() == size && attributes.lastModifiedTime().toMillis() == lastModified;
+			} catch (IOException e) {
+				return false;
+			}
+		}
+	}
+}
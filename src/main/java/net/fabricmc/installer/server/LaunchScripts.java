@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.server;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.fabricmc.installer.util.Utils;
+
+public final class LaunchScripts {
+	public static final String LAUNCH_COMMAND = "java -Xmx2G -jar " + ServerInstaller.DEFAULT_LAUNCH_JAR_NAME + " nogui";
+	// IgnoreUnrecognizedVMOptions keeps the scripts working on Java versions without dynamic CDS archives (before 13)
+	private static final String CDS_LAUNCH_COMMAND_PREFIX = "java -Xmx2G -XX:+IgnoreUnrecognizedVMOptions ";
+	private static final String CDS_LAUNCH_COMMAND_SUFFIX = " -jar " + ServerInstaller.DEFAULT_LAUNCH_JAR_NAME + " nogui";
+
+	private LaunchScripts() {
+	}
+
+	public static Map<Path, String> create(Path installDir, boolean cds) {
+		Map<Path, String> launchScripts = new LinkedHashMap<>();
+
+		if (cds) {
+			launchScripts.put(installDir.resolve("start.bat"), CdsArchive.batchArgs() + CDS_LAUNCH_COMMAND_PREFIX + "%CDS_ARGS%" + CDS_LAUNCH_COMMAND_SUFFIX + "\npause");
+			launchScripts.put(installDir.resolve("start.sh"), "#!/usr/bin/env bash\n" + CdsArchive.shellArgs() + CDS_LAUNCH_COMMAND_PREFIX + "$CDS_ARGS" + CDS_LAUNCH_COMMAND_SUFFIX);
+		} else {
+			launchScripts.put(installDir.resolve("start.bat"), LAUNCH_COMMAND + "\npause");
+			launchScripts.put(installDir.resolve("start.sh"), "#!/usr/bin/env bash\n" + LAUNCH_COMMAND);
+		}
+
+		return launchScripts;
+	}
+
+	public static void write(Path path, String script) throws IOException {
+		Utils.writeToFile(path, script);
+		path.toFile().setExecutable(true, false);
+	}
+}
@@ -17,50 +17,79 @@
 package net.fabricmc.installer.server;
 
 import java.io.IOException;
-import java.net.URL;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
 
-import net.fabricmc.installer.util.HttpClient;
+import net.fabricmc.installer.util.DigestIndex;
+import net.fabricmc.installer.util.FabricService;
+import net.fabricmc.installer.util.FileLocks;
 import net.fabricmc.installer.util.LauncherMeta;
-import net.fabricmc.installer.util.Utils;
 import net.fabricmc.installer.util.VersionMeta;
 
 public class MinecraftServerDownloader {
 	private final String gameVersion;
+	private volatile VersionMeta.Download serverDownload;
 
 	public MinecraftServerDownloader(String gameVersion) {
 		this.gameVersion = gameVersion;
 	}
 
-	public void downloadMinecraftServer(Path serverJar) throws IOException {
-		if (isServerJarValid(serverJar)) {
+	/**
+	 * Download a known server jar, such as one pinned by an {@link InstallLock}, without querying the launcher meta.
+	 */
+	public MinecraftServerDownloader(String gameVersion, VersionMeta.Download serverDownload) {
+		this.gameVersion = gameVersion;
+		this.serverDownload = serverDownload;
+	}
+
+	/**
+	 * @param dir the server directory, its {@link FileLocks lock directory} and {@link DigestIndex digest index} are used
+	 */
+	public void downloadMinecraftServer(Path serverJar, Path dir) throws IOException {
+		Path indexFile = dir.resolve(ServerInstaller.DIGEST_INDEX);
+
+		if (isServerJarValid(indexFile, serverJar)) {
 			System.out.println("Existing server jar valid, not downloading");
 			return;
 		}
 
-		Path serverJarTmp = serverJar.resolveSibling(serverJar.getFileName().toString() + ".tmp");
-		Files.deleteIfExists(serverJar);
-		HttpClient.downloadFile(new URL(getServerDownload().url), serverJarTmp);
+		String expectedSha1 = getServerDownload().sha1;
 
-		if (!isServerJarValid(serverJarTmp)) {
-			throw new IOException("Failed to validate downloaded server jar");
-		}
+		// Checked again once locked, another process may have downloaded it in the meantime
+		FileLocks.download(dir.resolve(ServerInstaller.LOCK_DIR), serverJar, file -> isServerJarValid(indexFile, file),
+				tmp -> FabricService.downloadSubstitutedMaven(getServerDownload().url, tmp, expectedSha1));
+		DigestIndex.put(indexFile, serverJar, expectedSha1);
+	}
 
-		Files.move(serverJarTmp, serverJar, StandardCopyOption.REPLACE_EXISTING);
+	/**
+	 * Download the server jar on a background thread, so it can overlap with the loader install.
+	 */
+	public CompletableFuture<Void> downloadMinecraftServerAsync(Path serverJar, Path dir) {
+		return CompletableFuture.runAsync(() -> {
+			try {
+				downloadMinecraftServer(serverJar, dir);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, r -> {
+			Thread thread = new Thread(r, "Minecraft server download");
+			thread.setDaemon(true);
+			thread.start();
+		});
 	}
 
-	private boolean isServerJarValid(Path serverJar) throws IOException {
+	private boolean isServerJarValid(Path indexFile, Path serverJar) throws IOException {
 		if (!Files.exists(serverJar)) {
 			return false;
 		}
 
-		return Utils.sha1String(serverJar).equalsIgnoreCase(getServerDownload().sha1);
+		return DigestIndex.sha1String(indexFile, serverJar).equalsIgnoreCase(getServerDownload().sha1);
 	}
 
 	private VersionMeta getVersionMeta() throws IOException {
-		LauncherMeta.Version version = LauncherMeta.getLauncherMeta().getVersion(gameVersion);
+		LauncherMeta.Version version = LauncherMeta.findVersion(gameVersion);
 
 		if (version == null) {
 			throw new RuntimeException("Failed to find version info for minecraft " + gameVersion);
@@ -69,7 +98,11 @@ public class MinecraftServerDownloader {
 		return version.getVersionMeta();
 	}
 
-	private VersionMeta.Download getServerDownload() throws IOException {
-		return getVersionMeta().downloads.get("server");
+	public VersionMeta.Download getServerDownload() throws IOException {
+		if (serverDownload == null) {
+			serverDownload = getVersionMeta().downloads.get("server");
+		}
+
+		return serverDownload;
 	}
 }
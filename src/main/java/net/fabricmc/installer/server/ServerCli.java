@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.server;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.MessageFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import net.fabricmc.installer.LoaderVersion;
+import net.fabricmc.installer.Main;
+import net.fabricmc.installer.util.ArgumentParser;
+import net.fabricmc.installer.util.InstallerProgress;
+import net.fabricmc.installer.util.Utils;
+
+/**
+ * The server command, kept apart from {@link ServerHandler} so the command line never loads AWT or Swing.
+ */
+public final class ServerCli {
+	public static final String CLI_HELP = "-dir <install dir, default current dir> -mcversion <minecraft version, default latest> -loader <loader version, default latest> -strict <check -mcversion and -loader against the version lists> -downloadMinecraft -scripts <generate launch scripts> -cds <launch scripts use a class data sharing archive> -libraries <shared library dir> -librarymode [link, classpath] -lock <install from lock file, default dir/install.lock>";
+
+	private ServerCli() {
+	}
+
+	public static void installCli(ArgumentParser args) throws Exception {
+		Path dir = Paths.get(args.getOrDefault("dir", () -> ".")).toAbsolutePath().normalize();
+
+		if (!Files.isDirectory(dir)) {
+			throw new FileNotFoundException("Server directory not found at " + dir + " or not a directory");
+		}
+
+		if (args.has("lock")) {
+			installFromLock(args, dir);
+			return;
+		}
+
+		LoaderVersion loaderVersion = new LoaderVersion(Main.LOADER_META.resolveVersion(args.get("loader"), false));
+		String gameVersion = Main.GAME_VERSION_META.resolveVersion(args.get("mcversion"), args.has("snapshot"));
+		CompletableFuture<Void> serverJarDownload = null;
+		MinecraftServerDownloader serverDownloader = null;
+
+		if (args.has("cds")) {
+			CdsArchive.enable(dir);
+		}
+
+		if (args.has("downloadMinecraft")) {
+			// Runs alongside the loader install
+			InstallerProgress.CONSOLE.updateProgress(Utils.BUNDLE.getString("progress.download.minecraft"));
+			Path serverJar = dir.resolve("server.jar");
+			serverDownloader = new MinecraftServerDownloader(gameVersion);
+			serverJarDownload = serverDownloader.downloadMinecraftServerAsync(serverJar, dir);
+		}
+
+		InstallLock lock;
+
+		try {
+			lock = ServerInstaller.install(dir, loaderVersion, gameVersion, InstallerProgress.CONSOLE, dir.resolve(ServerInstaller.DEFAULT_LAUNCH_JAR_NAME), getSharedLibraries(args));
+		} catch (IOException | RuntimeException e) {
+			if (serverJarDownload != null) {
+				try {
+					Utils.await(serverJarDownload);
+				} catch (IOException | RuntimeException e2) {
+					e.addSuppressed(e2);
+				}
+			}
+
+			throw e;
+		}
+
+		if (serverJarDownload != null) {
+			Utils.await(serverJarDownload);
+			lock.withServerJar(serverDownloader.getServerDownload()).write(dir.resolve(InstallLock.FILE_NAME));
+			InstallerProgress.CONSOLE.updateProgress(Utils.BUNDLE.getString("progress.done"));
+		}
+
+		finishCli(args, dir);
+	}
+
+	// Reproduce the install recorded in a lock file, no metadata is queried
+	private static void installFromLock(ArgumentParser args, Path dir) throws Exception {
+		String lockFile = args.get("lock");
+		InstallLock lock = InstallLock.read(lockFile == null || lockFile.isEmpty() ? dir.resolve(InstallLock.FILE_NAME) : Paths.get(lockFile));
+
+		if (args.has("cds")) {
+			CdsArchive.enable(dir);
+		}
+
+		CompletableFuture<Void> serverJarDownload = null;
+
+		if (args.has("downloadMinecraft")) {
+			if (lock.serverJar == null) throw new IOException("The install lock doesn't include a minecraft server jar");
+
+			InstallerProgress.CONSOLE.updateProgress(Utils.BUNDLE.getString("progress.download.minecraft"));
+			serverJarDownload = new MinecraftServerDownloader(lock.gameVersion, lock.serverJar).downloadMinecraftServerAsync(dir.resolve("server.jar"), dir);
+		}
+
+		InstallLock installed;
+
+		try {
+			installed = ServerInstaller.install(dir, lock, InstallerProgress.CONSOLE, dir.resolve(ServerInstaller.DEFAULT_LAUNCH_JAR_NAME), getSharedLibraries(args));
+		} catch (IOException | RuntimeException e) {
+			if (serverJarDownload != null) {
+				try {
+					Utils.await(serverJarDownload);
+				} catch (IOException | RuntimeException e2) {
+					e.addSuppressed(e2);
+				}
+			}
+
+			throw e;
+		}
+
+		if (serverJarDownload != null) {
+			Utils.await(serverJarDownload);
+			installed.withServerJar(lock.serverJar).write(dir.resolve(InstallLock.FILE_NAME));
+			InstallerProgress.CONSOLE.updateProgress(Utils.BUNDLE.getString("progress.done"));
+		}
+
+		finishCli(args, dir);
+	}
+
+	private static SharedLibraries getSharedLibraries(ArgumentParser args) {
+		if (!args.has("libraries")) return null;
+
+		return new SharedLibraries(Paths.get(args.get("libraries")), SharedLibraries.Mode.parse(args.get("librarymode"), "-librarymode"));
+	}
+
+	private static void finishCli(ArgumentParser args, Path dir) throws IOException {
+		if (args.has("scripts") || args.has("cds")) {
+			for (Map.Entry<Path, String> entry : LaunchScripts.create(dir, CdsArchive.isEnabled(dir)).entrySet()) {
+				LaunchScripts.write(entry.getKey(), entry.getValue());
+			}
+		}
+
+		InstallerProgress.CONSOLE.updateProgress(new MessageFormat(Utils.BUNDLE.getString("progress.done.start.server")).format(new Object[]{ServerInstaller.DEFAULT_LAUNCH_JAR_NAME}));
+	}
+}
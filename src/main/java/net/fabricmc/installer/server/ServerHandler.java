@@ -21,14 +21,10 @@ import java.awt.Desktop;
 import java.awt.GridBagConstraints;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.text.MessageFormat;
 
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -36,8 +32,6 @@ import javax.swing.JPanel;
 import net.fabricmc.installer.Handler;
 import net.fabricmc.installer.InstallerGui;
 import net.fabricmc.installer.LoaderVersion;
-import net.fabricmc.installer.util.ArgumentParser;
-import net.fabricmc.installer.util.InstallerProgress;
 import net.fabricmc.installer.util.Reference;
 import net.fabricmc.installer.util.Utils;
 
@@ -47,6 +41,11 @@ public class ServerHandler extends Handler {
 		return "Server";
 	}
 
+	@Override
+	protected boolean isServer() {
+		return true;
+	}
+
 	@Override
 	public void install() {
 		String gameVersion = (String) gameVersionComboBox.getSelectedItem();
@@ -65,34 +64,6 @@ public class ServerHandler extends Handler {
 		}).start();
 	}
 
-	@Override
-	public void installCli(ArgumentParser args) throws Exception {
-		Path dir = Paths.get(args.getOrDefault("dir", () -> ".")).toAbsolutePath().normalize();
-
-		if (!Files.isDirectory(dir)) {
-			throw new FileNotFoundException("Server directory not found at " + dir + " or not a directory");
-		}
-
-		LoaderVersion loaderVersion = new LoaderVersion(getLoaderVersion(args));
-		String gameVersion = getGameVersion(args);
-		ServerInstaller.install(dir, loaderVersion, gameVersion, InstallerProgress.CONSOLE);
-
-		if (args.has("downloadMinecraft")) {
-			InstallerProgress.CONSOLE.updateProgress(Utils.BUNDLE.getString("progress.download.minecraft"));
-			Path serverJar = dir.resolve("server.jar");
-			MinecraftServerDownloader downloader = new MinecraftServerDownloader(gameVersion);
-			downloader.downloadMinecraftServer(serverJar);
-			InstallerProgress.CONSOLE.updateProgress(Utils.BUNDLE.getString("progress.done"));
-		}
-
-		InstallerProgress.CONSOLE.updateProgress(new MessageFormat(Utils.BUNDLE.getString("progress.done.start.server")).format(new Object[]{ServerInstaller.DEFAULT_LAUNCH_JAR_NAME}));
-	}
-
-	@Override
-	public String cliHelp() {
-		return "-dir <install dir, default current dir> -mcversion <minecraft version, default latest> -loader <loader version, default latest> -downloadMinecraft";
-	}
-
 	@Override
 	public void setupPane1(JPanel pane, GridBagConstraints c, InstallerGui installerGui) {
 		if (!Desktop.isDesktopSupported() || !Desktop.getDesktop().isSupported(Desktop.Action.BROWSE)) {
@@ -23,9 +23,12 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.text.MessageFormat;
 import java.util.ArrayList;
@@ -36,6 +39,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -50,7 +54,9 @@ import java.util.zip.ZipOutputStream;
 import mjson.Json;
 
 import net.fabricmc.installer.LoaderVersion;
+import net.fabricmc.installer.util.BulkHasher;
 import net.fabricmc.installer.util.FabricService;
+import net.fabricmc.installer.util.FileLocks;
 import net.fabricmc.installer.util.InstallerProgress;
 import net.fabricmc.installer.util.Library;
 import net.fabricmc.installer.util.Utils;
@@ -59,14 +65,29 @@ public class ServerInstaller {
 	private static final String servicesDir = "META-INF/services/";
 	private static final String manifestPath = "META-INF/MANIFEST.MF";
 	public static final String DEFAULT_LAUNCH_JAR_NAME = "fabric-server-launch.jar";
+	private static final String FABRIC_MAVEN = "https://maven.fabricmc.net/";
+	/** The lock directory for downloads into a server directory, relative to it. */
+	public static final Path LOCK_DIR = Paths.get(".fabric", "server", "locks");
+	/** The digest index for the server jar of a server directory, relative to it, also used for a jar outside of it. */
+	public static final Path DIGEST_INDEX = Paths.get(".fabric", "server", "digests.properties");
 	private static final Pattern SIGNATURE_FILE_PATTERN = Pattern.compile("META-INF/[^/]+\\.(SF|DSA|RSA|EC)");
 
-	public static void install(Path dir, LoaderVersion loaderVersion, String gameVersion, InstallerProgress progress) throws IOException {
+	public static InstallLock install(Path dir, LoaderVersion loaderVersion, String gameVersion, InstallerProgress progress) throws IOException {
 		Path launchJar = dir.resolve(DEFAULT_LAUNCH_JAR_NAME);
-		install(dir, loaderVersion, gameVersion, progress, launchJar);
+		return install(dir, loaderVersion, gameVersion, progress, launchJar);
 	}
 
-	public static void install(Path dir, LoaderVersion loaderVersion, String gameVersion, InstallerProgress progress, Path launchJar) throws IOException {
+	public static InstallLock install(Path dir, LoaderVersion loaderVersion, String gameVersion, InstallerProgress progress, Path launchJar) throws IOException {
+		return install(dir, loaderVersion, gameVersion, progress, launchJar, null);
+	}
+
+	/**
+	 * Install the server and record the resolved artifacts in an {@link InstallLock} within dir.
+	 *
+	 * @param sharedLibraries a shared library directory to take the libraries from, or null to download them into the install
+	 * @return the written lock, with the vanilla server jar only if carried over from a previous install of the same game version
+	 */
+	public static InstallLock install(Path dir, LoaderVersion loaderVersion, String gameVersion, InstallerProgress progress, Path launchJar, SharedLibraries sharedLibraries) throws IOException {
 		progress.updateProgress(new MessageFormat(Utils.BUNDLE.getString("progress.installing.server")).format(new Object[]{String.format("%s(%s)", loaderVersion.name, gameVersion)}));
 
 		Files.createDirectories(dir);
@@ -89,7 +110,7 @@ public class ServerInstaller {
 			mainClassMeta = json.at("mainClass").asString();
 		} else { // loader jar available, generate library list from it
 			libraries.add(new Library(String.format("net.fabricmc:fabric-loader:%s", loaderVersion.name), null, loaderVersion.path));
-			libraries.add(new Library(String.format("net.fabricmc:intermediary:%s", gameVersion), "https://maven.fabricmc.net/", null));
+			libraries.add(new Library(String.format("net.fabricmc:intermediary:%s", gameVersion), FABRIC_MAVEN, null));
 
 			try (ZipFile zf = new ZipFile(loaderVersion.path.toFile())) {
 				ZipEntry entry = zf.getEntry("fabric-installer.json");
@@ -110,14 +131,22 @@ public class ServerInstaller {
 
 		String mainClassManifest = "net.fabricmc.loader.launch.server.FabricServerLauncher";
 		List<Path> libraryFiles = new ArrayList<>();
+		InstallLock previous = readPreviousLock(dir);
+		Map<String, String> previousHashes = new HashMap<>();
+
+		if (previous != null) {
+			for (InstallLock.Artifact artifact : previous.libraries) {
+				previousHashes.put(artifact.name, artifact.sha1);
+			}
+		}
 
 		for (Library library : libraries) {
-			Path libraryFile = libsDir.resolve(library.getPath());
+			Path libraryFile;
 
 			if (library.inputPath == null) {
-				progress.updateProgress(new MessageFormat(Utils.BUNDLE.getString("progress.download.library.entry")).format(new Object[]{library.name}));
-				FabricService.downloadSubstitutedMaven(library.getURL(), libraryFile);
+				libraryFile = installLibrary(library, null, previousHashes.get(library.name), dir, launchJar, sharedLibraries, progress);
 			} else {
+				libraryFile = libsDir.resolve(library.getPath());
 				Files.createDirectories(libraryFile.getParent());
 				Files.copy(library.inputPath, libraryFile, StandardCopyOption.REPLACE_EXISTING);
 			}
@@ -132,10 +161,118 @@ public class ServerInstaller {
 			}
 		}
 
+		GarbageCollector.record(dir, libraryFiles);
+		finishInstall(dir, loaderVersion.name, launchJar, mainClassMeta, mainClassManifest, libraryFiles, progress);
+
+		return writeLock(dir, createLock(gameVersion, loaderVersion.name, mainClassMeta, mainClassManifest, libraries, libraryFiles), previous);
+	}
+
+	/**
+	 * Install exactly the artifacts recorded in a lock, without any metadata queries. Every library is verified
+	 * against its recorded hash as it is downloaded.
+	 *
+	 * @param sharedLibraries a shared library directory to take the libraries from, or null to download them into the install
+	 * @return the lock written within dir, with the vanilla server jar only if carried over from a previous install of the same game version
+	 */
+	public static InstallLock install(Path dir, InstallLock lock, InstallerProgress progress, Path launchJar, SharedLibraries sharedLibraries) throws IOException {
+		progress.updateProgress(new MessageFormat(Utils.BUNDLE.getString("progress.installing.server")).format(new Object[]{String.format("%s(%s)", lock.loaderVersion, lock.gameVersion)}));
+
+		Path libsDir = dir.resolve("libraries");
+		Files.createDirectories(libsDir);
+
+		progress.updateProgress(Utils.BUNDLE.getString("progress.download.libraries"));
+
+		List<Path> libraryFiles = new ArrayList<>();
+		InstallLock previous = readPreviousLock(dir);
+
+		for (InstallLock.Artifact artifact : lock.libraries) {
+			libraryFiles.add(installLibrary(new Library(artifact.name, artifact.url, null), artifact.sha1, artifact.sha1, dir, launchJar, sharedLibraries, progress));
+		}
+
+		GarbageCollector.record(dir, libraryFiles);
+		finishInstall(dir, lock.loaderVersion, launchJar, lock.launchMainClass, lock.jarMainClass, libraryFiles, progress);
+
+		return writeLock(dir, lock.withServerJar(null), previous);
+	}
+
+	/**
+	 * @param sha1 the expected hash of a download, or null to skip verification
+	 * @param existingSha1 the hash an already installed copy must have to be reused, or null to always download
+	 */
+	private static Path installLibrary(Library library, String sha1, String existingSha1, Path dir, Path launchJar, SharedLibraries sharedLibraries, InstallerProgress progress) throws IOException {
+		Path libraryFile = dir.resolve("libraries").resolve(library.getPath());
+
+		// Maven artifacts are immutable, so a verified copy from a previous install of another version can be kept
+		if (sharedLibraries == null && existingSha1 != null && Files.isRegularFile(libraryFile)
+				&& Utils.sha1String(libraryFile).equalsIgnoreCase(existingSha1)) {
+			progress.updateProgress(new MessageFormat(Utils.BUNDLE.getString("progress.reuse.library.entry")).format(new Object[]{library.name}));
+			return libraryFile;
+		}
+
+		progress.updateProgress(new MessageFormat(Utils.BUNDLE.getString("progress.download.library.entry")).format(new Object[]{library.name}));
+
+		if (sharedLibraries != null) {
+			return sharedLibraries.install(library, sha1, libraryFile, launchJar.toAbsolutePath().getParent());
+		}
+
+		// Another installer sharing the directory may be downloading the same library, reuse its download if so
+		FileLocks.Validator validator = sha1 != null ? file -> Files.isRegularFile(file) && Utils.sha1String(file).equalsIgnoreCase(sha1) : FileLocks.changedSince(libraryFile);
+		FileLocks.download(dir.resolve(LOCK_DIR), libraryFile, validator, tmp -> FabricService.downloadSubstitutedMaven(library.getURL(), tmp, sha1));
+
+		return libraryFile;
+	}
+
+	// Replace the lock within dir with the installed one, so upgrades and the garbage collector see the actual install
+	private static InstallLock writeLock(Path dir, InstallLock lock, InstallLock previous) throws IOException {
+		if (previous != null && previous.gameVersion.equals(lock.gameVersion)) {
+			// Loader upgrade, the server jar is unchanged
+			lock = lock.withServerJar(previous.serverJar);
+		}
+
+		lock.write(dir.resolve(InstallLock.FILE_NAME));
+
+		return lock;
+	}
+
+	// The lock of the previous install in dir, used to skip unchanged libraries when upgrading
+	private static InstallLock readPreviousLock(Path dir) {
+		Path lockFile = dir.resolve(InstallLock.FILE_NAME);
+		if (!Files.exists(lockFile)) return null;
+
+		try {
+			return InstallLock.read(lockFile);
+		} catch (IOException e) {
+			System.err.println("Ignoring unreadable install lock: " + e.getMessage());
+			return null;
+		}
+	}
+
+	private static void finishInstall(Path dir, String loaderVersion, Path launchJar, String mainClassMeta, String mainClassManifest, List<Path> libraryFiles, InstallerProgress progress) throws IOException {
 		progress.updateProgress(Utils.BUNDLE.getString("progress.generating.launch.jar"));
 
-		boolean shadeLibraries = Utils.compareVersions(loaderVersion.name, "0.12.5") <= 0; // FabricServerLauncher in Fabric Loader 0.12.5 and earlier requires shading the libs into the launch jar
+		boolean shadeLibraries = Utils.compareVersions(loaderVersion, "0.12.5") <= 0; // FabricServerLauncher in Fabric Loader 0.12.5 and earlier requires shading the libs into the launch jar
 		makeLaunchJar(launchJar, mainClassMeta, mainClassManifest, libraryFiles, shadeLibraries, progress);
+
+		CdsArchive.update(dir, launchJar, libraryFiles);
+	}
+
+	private static InstallLock createLock(String gameVersion, String loaderVersion, String mainClassMeta, String mainClassManifest, List<Library> libraries, List<Path> libraryFiles) throws IOException {
+		List<InstallLock.Artifact> artifacts = new ArrayList<>(libraries.size());
+
+		try (BulkHasher hasher = new BulkHasher()) {
+			Map<Path, CompletableFuture<String>> hashes = hasher.sha1Strings(libraryFiles);
+
+			for (int i = 0; i < libraries.size(); i++) {
+				Library library = libraries.get(i);
+				Path file = libraryFiles.get(i);
+				// A local loader jar is recorded with its canonical maven location
+				String url = library.url != null ? library.url : FABRIC_MAVEN;
+
+				artifacts.add(new InstallLock.Artifact(library.name, url, Utils.await(hashes.get(file)), Files.size(file)));
+			}
+		}
+
+		return new InstallLock(gameVersion, loaderVersion, mainClassMeta, mainClassManifest, artifacts, null);
 	}
 
 	private static void makeLaunchJar(Path file, String launchMainClass, String jarMainClass, List<Path> libraryFiles,
@@ -156,7 +293,7 @@ public class ServerInstaller {
 
 			if (!shadeLibraries) {
 				mainAttributes.put(Attributes.Name.CLASS_PATH, libraryFiles.stream()
-						.map(f -> file.getParent().relativize(f).normalize().toString().replace("\\", "/"))
+						.map(f -> toClassPathEntry(file.toAbsolutePath().getParent().relativize(f.toAbsolutePath()).normalize()))
 						.collect(Collectors.joining(" ")));
 			}
 
@@ -171,7 +308,7 @@ public class ServerInstaller {
 
 			if (shadeLibraries) {
 				Map<String, Set<String>> services = new HashMap<>();
-				byte[] buffer = new byte[32768];
+				byte[] buffer = new byte[Utils.LOW_MEMORY ? 8192 : 32768];
 
 				for (Path f : libraryFiles) {
 					progress.updateProgress(new MessageFormat(Utils.BUNDLE.getString("progress.generating.launch.jar.library")).format(new Object[]{f.getFileName().toString()}));
@@ -220,6 +357,17 @@ public class ServerInstaller {
 		}
 	}
 
+	// Class-Path entries are relative URLs, so escape anything that isn't valid in a URL path such as spaces
+	private static String toClassPathEntry(Path relativePath) {
+		String path = relativePath.toString().replace("\\", "/");
+
+		try {
+			return new URI(null, null, path, null).getRawPath();
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException("Invalid class path entry: " + path, e);
+		}
+	}
+
 	private static void parseServiceDefinition(String name, InputStream rawIs, Map<String, Set<String>> services) throws IOException {
 		Collection<String> out = null;
 		BufferedReader reader = new BufferedReader(new InputStreamReader(rawIs, StandardCharsets.UTF_8));
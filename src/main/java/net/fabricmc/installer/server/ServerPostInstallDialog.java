@@ -36,7 +36,6 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.text.MessageFormat;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Consumer;
 import java.util.jar.JarEntry;
@@ -62,7 +61,6 @@ import net.fabricmc.installer.util.Utils;
 
 @SuppressWarnings("serial")
 public class ServerPostInstallDialog extends JDialog {
-	private static final String launchCommand = "java -Xmx2G -jar fabric-server-launch.jar nogui";
 	private static final int MB = 1000000;
 
 	private final JPanel panel = new JPanel();
@@ -106,7 +104,7 @@ public class ServerPostInstallDialog extends JDialog {
 
 		addRow(panel, panel -> panel.add(fontSize(new JLabel(Utils.BUNDLE.getString("prompt.server.info.command")), 15)));
 		addRow(panel, panel -> {
-			JTextField textField = new JTextField(launchCommand);
+			JTextField textField = new JTextField(LaunchScripts.LAUNCH_COMMAND);
 			textField.setHorizontalAlignment(JTextField.CENTER);
 			panel.add(textField);
 		});
@@ -186,7 +184,7 @@ public class ServerPostInstallDialog extends JDialog {
 
 		new Thread(() -> {
 			try {
-				URL url = new URL(LauncherMeta.getLauncherMeta().getVersion(minecraftVersion).getVersionMeta().downloads.get("server").url);
+				URL url = new URL(LauncherMeta.findVersion(minecraftVersion).getVersionMeta().downloads.get("server").url);
 				HttpURLConnection httpConnection = (HttpURLConnection) url.openConnection();
 				int finalSize = httpConnection.getContentLength();
 
@@ -218,9 +216,7 @@ public class ServerPostInstallDialog extends JDialog {
 	}
 
 	private void generateLaunchScripts() {
-		Map<Path, String> launchScripts = new HashMap<>();
-		launchScripts.put(installDir.resolve("start.bat"), launchCommand + "\npause");
-		launchScripts.put(installDir.resolve("start.sh"), "#!/usr/bin/env bash\n" + launchCommand);
+		Map<Path, String> launchScripts = LaunchScripts.create(installDir, CdsArchive.isEnabled(installDir));
 
 		boolean exists = launchScripts.entrySet().stream().anyMatch(entry -> Files.exists(entry.getKey()));
 
@@ -230,8 +226,7 @@ public class ServerPostInstallDialog extends JDialog {
 
 		launchScripts.forEach((path, s) -> {
 			try {
-				Utils.writeToFile(path, s);
-				path.toFile().setExecutable(true, false);
+				LaunchScripts.write(path, s);
 			} catch (IOException e) {
 				serverHandler.error(e);
 			}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.server;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import net.fabricmc.installer.util.FabricService;
+import net.fabricmc.installer.util.FileLocks;
+import net.fabricmc.installer.util.Library;
+import net.fabricmc.installer.util.SingleFlight;
+import net.fabricmc.installer.util.Utils;
+
+/**
+ * A library directory shared between several server installs on the same host.
+ *
+ * <p>Libraries are downloaded into the shared directory once. Each server then either hard links them into its own
+ * {@code libraries} directory, or references the shared copy directly from the launch jar class path. Either way the
+ * page cache holds a single copy of each jar.
+ */
+public final class SharedLibraries {
+	private static final SingleFlight<Path, Void> IN_FLIGHT = SingleFlight.dedupe();
+
+	private final Path dir;
+	private final Mode mode;
+
+	public SharedLibraries(Path dir, Mode mode) {
+		this.dir = dir.toAbsolutePath().normalize();
+		this.mode = mode;
+	}
+
+	/**
+	 * Create from the {@code fabric.installer.server.libraryDir} and {@code fabric.installer.server.libraryMode}
+	 * system properties, returns null if no shared directory is configured.
+	 */
+	public static SharedLibraries fromSystemProperties() {
+		String dir = System.getProperty("fabric.installer.server.libraryDir");
+		if (dir == null) return null;
+
+		return new SharedLibraries(Paths.get(dir), Mode.parse(System.getProperty("fabric.installer.server.libraryMode"), "fabric.installer.server.libraryMode"));
+	}
+
+	public Path getDir() {
+		return dir;
+	}
+
+	/**
+	 * Make the library available to a server install, downloading it into the shared directory if required.
+	 *
+	 * @param sha1 the expected hex SHA-1 of a new download, or null to skip verification
+	 * @param localFile the location the library would have in the server's own library directory
+	 * @param launchJarDir the directory containing the launch jar, class path entries are relative to it
+	 * @return the file to put on the launch jar class path
+	 */
+	Path install(Library library, String sha1, Path localFile, Path launchJarDir) throws IOException {
+		Path sharedFile = dir.resolve(library.getPath());
+		fetch(sharedFile, tmp -> FabricService.downloadSubstitutedMaven(library.getURL(), tmp, sha1));
+
+		if (mode == Mode.CLASS_PATH) {
+			try {
+				launchJarDir.relativize(sharedFile);
+				return sharedFile;
+			} catch (IllegalArgumentException e) {
+				// Different root (e.g. another drive on windows), can't be expressed as a relative class path entry
+			}
+		}
+
+		Utils.linkOrCopy(sharedFile, localFile);
+
+		return localFile;
+	}
+
+	/**
+	 * Download a file into the shared directory unless it is already present. Concurrent requests for the same file
+	 * within this process wait for the first one instead of downloading it again.
+	 */
+	void fetch(Path sharedFile, Downloader downloader) throws IOException {
+		// Maven artifacts and server jars are immutable, so an existing file never needs to be refreshed
+		if (Files.exists(sharedFile)) return;
+
+		IN_FLIGHT.get(sharedFile, () -> {
+			// Other processes using the same directory are coordinated through a file lock
+			FileLocks.download(dir.resolve(FileLocks.LOCK_DIR), sharedFile, Files::exists, downloader::download);
+			return null;
+		});
+	}
+
+	interface Downloader {
+		void download(Path out) throws IOException;
+	}
+
+	public enum Mode {
+		/**
+		 * Hard link the shared files into the server's library directory, copying if that is not possible.
+		 */
+		LINK,
+		/**
+		 * Reference the shared files from the launch jar class path.
+		 */
+		CLASS_PATH;
+
+		/**
+		 * Parse {@code link} or {@code classpath}, defaulting to {@link #LINK} if name is null or empty.
+		 *
+		 * @param option the system property or argument the name was read from, for the error message
+		 */
+		public static Mode parse(String name, String option) {
+			if (name == null || name.isEmpty()) return LINK;
+
+			try {
+				return valueOf(name.toUpperCase(Locale.ROOT).replace("CLASSPATH", "CLASS_PATH"));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException(String.format("Invalid %s: %s, expected link or classpath", option, name));
+			}
+		}
+	}
+}
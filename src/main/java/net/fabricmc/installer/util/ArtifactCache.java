@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A disk cache of Fabric Meta responses, Fabric Maven files and Mojang downloads, filled from upstream on demand.
+ *
+ * <p>Files are stored in the same layout as an {@link OfflineBundle}, so a cache directory can also be used directly
+ * as a local mirror. Version lists and the Mojang version manifests change over time and are re-fetched once older
+ * than the configured time to live, everything else is immutable and kept forever. Concurrent requests for the same
+ * missing file share a single upstream fetch.
+ */
+public final class ArtifactCache {
+	public static final long DEFAULT_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+
+	// Mojang hosts allowed under external/, anything else is refused to avoid becoming an open proxy
+	private static final Set<String> EXTERNAL_HOSTS = new HashSet<>(Arrays.asList(
+			"launchermeta.mojang.com",
+			"launcher.mojang.com",
+			"piston-meta.mojang.com",
+			"piston-data.mojang.com",
+			"libraries.minecraft.net"
+	));
+
+	private final Path dir;
+	private final long ttlMs;
+	private final SingleFlight<String, Path> inFlight = SingleFlight.dedupe();
+
+	public ArtifactCache(Path dir, long ttlMs) {
+		this.dir = dir.toAbsolutePath().normalize();
+		this.ttlMs = ttlMs;
+	}
+
+	/**
+	 * The cache directory from the fabric.installer.cacheDir system property, or the per-user cache directory.
+	 */
+	public static Path defaultDir() {
+		String property = System.getProperty("fabric.installer.cacheDir");
+		if (property != null) return Paths.get(property);
+
+		Path home = Paths.get(System.getProperty("user.home", "."));
+
+		if (OperatingSystem.CURRENT == OperatingSystem.WINDOWS && System.getenv("LOCALAPPDATA") != null) {
+			return Paths.get(System.getenv("LOCALAPPDATA")).resolve("fabric-installer").resolve("cache");
+		} else if (OperatingSystem.CURRENT == OperatingSystem.MACOS) {
+			return home.resolve("Library").resolve("Caches").resolve("fabric-installer");
+		} else if (System.getenv("XDG_CACHE_HOME") != null) {
+			return Paths.get(System.getenv("XDG_CACHE_HOME")).resolve("fabric-installer");
+		} else {
+			return home.resolve(".cache").resolve("fabric-installer");
+		}
+	}
+
+	public Path getDir() {
+		return dir;
+	}
+
+	/**
+	 * How long mutable files such as the version lists are used before they are refreshed.
+	 */
+	public long getTtlMs() {
+		return ttlMs;
+	}
+
+	/**
+	 * Get a file from the cache, fetching it from upstream if missing or stale.
+	 *
+	 * <p>If the upstream fetch of a stale file fails the stale copy is returned instead.
+	 *
+	 * @param path the path within the cache, e.g. {@code meta/v2/versions/game.json} or {@code maven/net/fabricmc/...}
+	 * @throws IllegalArgumentException if the path is outside the cache layout or names a host that isn't mirrored
+	 */
+	public Path get(String path) throws IOException {
+		Path file = resolve(path);
+
+		if (isFresh(path, file)) {
+			return file;
+		}
+
+		return inFlight.get(path, () -> {
+			try {
+				// Another process sharing the cache may be fetching the same file, reuse its result
+				FileLocks.download(dir.resolve(FileLocks.LOCK_DIR), file, f -> isFresh(path, f), tmp -> fetch(path, tmp));
+			} catch (IOException e) {
+				if (!Files.isRegularFile(file)) throw e;
+
+				System.err.printf("Failed to refresh %s, using cached copy: %s%n", path, e.getMessage());
+			}
+
+			return file;
+		});
+	}
+
+	/**
+	 * Get an immutable file, such as a library or the profile json of a version, if the cache already holds it.
+	 *
+	 * @return the file, or null if it is missing, mutable or not handled by the cache
+	 */
+	public Path getIfPresent(String path) throws IOException {
+		if (!isCacheable(path) || isMutable(path)) return null;
+
+		Path file = resolve(path);
+
+		return Files.isRegularFile(file) ? file : null;
+	}
+
+	/**
+	 * Check whether a path is handled by the cache, external downloads are limited to a few Mojang hosts.
+	 */
+	public boolean isCacheable(String path) {
+		if (!isNormalized(path)) return false;
+		if (path.startsWith("meta/") || path.startsWith("maven/")) return true;
+		if (!path.startsWith("external/")) return false;
+
+		String hostPath = path.substring("external/".length());
+		int separator = hostPath.indexOf('/');
+
+		return separator > 0 && EXTERNAL_HOSTS.contains(hostPath.substring(0, separator));
+	}
+
+	/**
+	 * Check that a path has no empty, {@code .} or {@code ..} segments, which would let it leave the part of the layout
+	 * it was routed by, such as {@code maven/../external/<any host>/}.
+	 */
+	public static boolean isNormalized(String path) {
+		if (path.indexOf('\\') >= 0) return false;
+
+		for (String segment : path.split("/", -1)) {
+			if (segment.isEmpty() || segment.equals(".") || segment.equals("..")) return false;
+		}
+
+		return true;
+	}
+
+	private Path resolve(String path) {
+		Path file = dir.resolve(path).normalize();
+
+		if (!isNormalized(path) || !file.startsWith(dir) || file.equals(dir)) {
+			throw new IllegalArgumentException("Invalid cache path: " + path);
+		}
+
+		return file;
+	}
+
+	private boolean isFresh(String path, Path file) throws IOException {
+		if (!Files.isRegularFile(file)) return false;
+		if (!isMutable(path)) return true;
+
+		return System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis() < ttlMs;
+	}
+
+	private static boolean isMutable(String path) throws IOException {
+		// The profile and server json of a specific game and loader version never change, unlike the version lists
+		if (path.startsWith("meta/")) return !path.endsWith("/profile/json.json") && !path.endsWith("/server/json.json");
+
+		return path.equals(OfflineBundle.urlPath(Reference.MINECRAFT_LAUNCHER_MANIFEST))
+				|| path.equals(OfflineBundle.urlPath(Reference.EXPERIMENTAL_LAUNCHER_MANIFEST));
+	}
+
+	private void fetch(String path, Path out) throws IOException {
+		if (path.startsWith("meta/") && path.endsWith(".json")) {
+			FabricService.downloadMeta(path.substring("meta/".length(), path.length() - ".json".length()), out);
+		} else if (path.startsWith("maven/")) {
+			FabricService.download(Reference.DEFAULT_MAVEN_SERVER + path.substring("maven/".length()), out, null);
+		} else if (path.startsWith("external/")) {
+			if (!isCacheable(path)) throw new IllegalArgumentException("Host is not mirrored: " + path);
+
+			FabricService.download("https://" + path.substring("external/".length()), out, null);
+		} else {
+			throw new FileNotFoundException(path);
+		}
+	}
+}
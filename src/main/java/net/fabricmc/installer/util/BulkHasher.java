@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashes many files concurrently, one file per worker thread.
+ *
+ * <p>Files above {@link #MAPPED_THRESHOLD} are read through memory mapped {@link FileChannel} regions, smaller files
+ * are streamed with {@link Utils#sha1(Path)}. In {@link Utils#LOW_MEMORY low-memory mode} a single worker streams every
+ * file.
+ */
+public final class BulkHasher implements AutoCloseable {
+	private static final long MAPPED_THRESHOLD = 1024 * 1024;
+	private static final long MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+
+	private final ExecutorService executor;
+	private final long regionSize;
+
+	public BulkHasher() {
+		this(Utils.LOW_MEMORY ? 1 : Runtime.getRuntime().availableProcessors());
+	}
+
+	public BulkHasher(int threads) {
+		this(threads, MAPPED_REGION_SIZE);
+	}
+
+	// Smaller regions let tests cross a region boundary without a huge file
+	BulkHasher(int threads, long regionSize) {
+		this.regionSize = regionSize;
+		AtomicInteger counter = new AtomicInteger();
+
+		executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "Fabric Installer Hasher " + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Queue a file to be hashed.
+	 *
+	 * @return a future completing with the lowercase hex SHA-1 of the file
+	 */
+	public CompletableFuture<String> sha1String(Path path) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return Utils.bytesToHex(sha1(path));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Queue all files to be hashed, keeping the iteration order of the given paths.
+	 */
+	public Map<Path, CompletableFuture<String>> sha1Strings(Collection<Path> paths) {
+		Map<Path, CompletableFuture<String>> ret = new LinkedHashMap<>();
+
+		for (Path path : paths) {
+			ret.computeIfAbsent(path, this::sha1String);
+		}
+
+		return ret;
+	}
+
+	private byte[] sha1(Path path) throws IOException {
+		// Mapped regions count against the memory limit of a container, stream instead in low-memory mode
+		if (Utils.LOW_MEMORY || Files.size(path) < MAPPED_THRESHOLD) {
+			return Utils.sha1(path);
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			MessageDigest digest = Utils.sha1Digest();
+
+			for (long position = 0; position < size; position += regionSize) {
+				digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(regionSize, size - position)));
+			}
+
+			return digest.digest();
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Properties;
+
+/**
+ * Persistent SHA-1 cache for large files that rarely change, such as the vanilla server jar.
+ *
+ * <p>The index is a file owned by the installer, such as {@code .fabric/server/digests.properties} of a server install,
+ * mapping the absolute path of each hashed file to its size, modification time, file key (the inode on unix-like
+ * systems) and SHA-1. A lookup only re-hashes the file if any of those changed, or if strict mode is enabled. Nothing
+ * is written next to the hashed files, which may be outside the install, and entries of removed files are dropped
+ * whenever the index is written.
+ */
+public final class DigestIndex {
+	private static volatile boolean strict = Boolean.getBoolean("fabric.installer.strictHashing");
+
+	private DigestIndex() {
+	}
+
+	/**
+	 * Force every lookup to re-hash the file, the index is still updated with the result.
+	 */
+	public static void setStrict(boolean strict) {
+		DigestIndex.strict = strict;
+	}
+
+	public static boolean isStrict() {
+		return strict;
+	}
+
+	/**
+	 * Get the hash of a file, from the index if it is unchanged since it was recorded.
+	 *
+	 * @param indexFile the index to use, created if missing
+	 */
+	public static String sha1String(Path indexFile, Path path) throws IOException {
+		path = path.toAbsolutePath().normalize();
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+		if (!strict) {
+			synchronized (DigestIndex.class) {
+				String cached = readIndex(indexFile).getProperty(path.toString());
+
+				if (cached != null) {
+					String[] parts = cached.split(",", 4);
+
+					if (parts.length == 4 && parts[1].equals(Long.toString(attributes.size()))
+							&& parts[2].equals(Long.toString(attributes.lastModifiedTime().toMillis()))
+							&& parts[3].equals(fileKey(attributes))) {
+						return parts[0];
+					}
+				}
+			}
+		}
+
+		String sha1 = Utils.sha1String(path);
+		store(indexFile, path, attributes, sha1);
+
+		return sha1;
+	}
+
+	/**
+	 * Record an already known hash, for example after a download has been verified.
+	 */
+	public static void put(Path indexFile, Path path, String sha1) throws IOException {
+		path = path.toAbsolutePath().normalize();
+		store(indexFile, path, Files.readAttributes(path, BasicFileAttributes.class), sha1);
+	}
+
+	private static synchronized void store(Path indexFile, Path path, BasicFileAttributes attributes, String sha1) {
+		Properties index = readIndex(indexFile);
+		// Drop the files removed since, such as the server jars of previous versions
+		index.keySet().removeIf(key -> !Files.exists(Paths.get(key.toString())));
+		index.setProperty(path.toString(), String.join(",", sha1, Long.toString(attributes.size()), Long.toString(attributes.lastModifiedTime().toMillis()), fileKey(attributes)));
+
+		try {
+			Files.createDirectories(indexFile.toAbsolutePath().getParent());
+			Path tmp = Files.createTempFile(indexFile.toAbsolutePath().getParent(), indexFile.getFileName().toString(), ".tmp");
+
+			try (OutputStream os = Files.newOutputStream(tmp)) {
+				index.store(os, null);
+			}
+
+			Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			// The index is only an optimisation
+			System.err.println("Failed to update digest index " + indexFile + ": " + e.getMessage());
+		}
+	}
+
+	private static Properties readIndex(Path indexFile) {
+		Properties index = new Properties();
+
+		try (InputStream is = Files.newInputStream(indexFile)) {
+			index.load(is);
+		} catch (NoSuchFileException e) {
+			// Nothing indexed yet
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Ignoring unreadable digest index: " + e.getMessage());
+			index.clear();
+		}
+
+		return index;
+	}
+
+	private static String fileKey(BasicFileAttributes attributes) {
+		Object fileKey = attributes.fileKey();
+		return fileKey == null ? "" : fileKey.toString();
+	}
+}
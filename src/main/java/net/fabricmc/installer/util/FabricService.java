@@ -17,14 +17,28 @@
 package net.fabricmc.installer.util;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
 
 import mjson.Json;
 
 public final class FabricService {
 	private static int activeIndex = 0; // index into INSTANCES or -1 if set to a fixed service
 	private static FabricService fixedService;
+	private static OfflineBundle bundle;
+	private static String externalMirror;
+	private static ArtifactCache cache;
+	private static ArtifactCache prefetchCache;
 
 	private final String meta;
 	private final String maven;
@@ -33,39 +47,216 @@ public final class FabricService {
 	 * Query Fabric Meta path and decode as JSON.
 	 */
 	public static Json queryMetaJson(String path) throws IOException {
-		return invokeWithFallbacks((service, arg) -> Json.read(HttpClient.readString(new URL(service.meta + arg))), path);
+		return readMeta(path, in -> Json.read(Utils.readString(in)));
+	}
+
+	/**
+	 * Stream a Fabric Meta response into handler.
+	 */
+	public static <T> T readMeta(String path, HttpClient.Handler<T> handler) throws IOException {
+		if (bundle != null) {
+			try (InputStream is = bundle.openMeta(path)) {
+				return handler.read(is);
+			}
+		}
+
+		if (cache != null) return readFile(cache.get(OfflineBundle.metaPath(path)), handler);
+
+		Path prefetched = getPrefetched(OfflineBundle.metaPath(path));
+		if (prefetched != null) return readFile(prefetched, handler);
+
+		return invokeWithFallbacks((service, arg) -> {
+			Path local = resolveLocal(service.meta, arg);
+			if (local == null) return HttpClient.read(new URL(service.meta + arg), handler);
+
+			// A directory mirror can't hold both a file and a directory with the same name, prefer <path>.json
+			Path json = local.resolveSibling(local.getFileName() + ".json");
+			return readFile(Files.isRegularFile(json) ? json : local, handler);
+		}, path);
+	}
+
+	/**
+	 * Download a Fabric Meta response to file without decoding it, bypassing the artifact cache.
+	 */
+	static void downloadMeta(String path, Path out) throws IOException {
+		if (bundle != null) {
+			try (InputStream is = bundle.openMeta(path)) {
+				Files.copy(is, out, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			return;
+		}
+
+		invokeWithFallbacks((service, arg) -> {
+			Path local = resolveLocal(service.meta, arg);
+
+			if (local == null) {
+				HttpClient.downloadFile(new URL(service.meta + arg), out);
+			} else {
+				Path json = local.resolveSibling(local.getFileName() + ".json");
+				Files.copy(Files.isRegularFile(json) ? json : local, out, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			return null;
+		}, path);
 	}
 
 	/**
 	 * Query and decode JSON from url, substituting Fabric Maven with fallbacks or overrides.
 	 */
 	public static Json queryJsonSubstitutedMaven(String url) throws IOException {
+		return readSubstitutedMaven(url, in -> Json.read(Utils.readString(in)));
+	}
+
+	/**
+	 * Stream the content of url into handler, substituting Fabric Maven with fallbacks or overrides.
+	 *
+	 * <p>The handler may stop reading early, for example once it found the entry it was looking for.
+	 */
+	public static <T> T readSubstitutedMaven(String url, HttpClient.Handler<T> handler) throws IOException {
+		if (bundle != null) {
+			try (InputStream is = bundle.openUrl(url)) {
+				return handler.read(is);
+			}
+		}
+
+		if (cache != null && cache.isCacheable(OfflineBundle.urlPath(url))) {
+			return readFile(cache.get(OfflineBundle.urlPath(url)), handler);
+		}
+
+		Path prefetched = getPrefetched(OfflineBundle.urlPath(url));
+		if (prefetched != null) return readFile(prefetched, handler);
+
 		if (!url.startsWith(Reference.DEFAULT_MAVEN_SERVER)) {
-			return Json.read(HttpClient.readString(new URL(url)));
+			Path local = externalMirror != null ? resolveLocal(externalMirror, externalPath(url)) : null;
+			if (local != null) return readFile(local, handler);
+
+			return HttpClient.read(new URL(substituteExternal(url)), handler);
 		}
 
 		String path = url.substring(Reference.DEFAULT_MAVEN_SERVER.length());
 
-		return invokeWithFallbacks((service, arg) -> Json.read(HttpClient.readString(new URL(service.maven + arg))), path);
+		return invokeWithFallbacks((service, arg) -> {
+			Path local = resolveLocal(service.maven, arg);
+			return local != null ? readFile(local, handler) : HttpClient.read(new URL(service.maven + arg), handler);
+		}, path);
+	}
+
+	private static <T> T readFile(Path file, HttpClient.Handler<T> handler) throws IOException {
+		try (InputStream is = Files.newInputStream(file)) {
+			return handler.read(is);
+		}
 	}
 
 	/**
 	 * Download url to file, substituting Fabric Maven with fallbacks or overrides.
 	 */
 	public static void downloadSubstitutedMaven(String url, Path out) throws IOException {
+		downloadSubstitutedMaven(url, out, null);
+	}
+
+	/**
+	 * Download url to file, substituting Fabric Maven with fallbacks or overrides, and verify its SHA-1.
+	 *
+	 * <p>Network downloads are verified as they are received, a mismatch moves on to the next fallback service.
+	 *
+	 * @param sha1 the expected hex SHA-1, or null to skip verification
+	 */
+	public static void downloadSubstitutedMaven(String url, Path out, String sha1) throws IOException {
+		if (bundle != null) {
+			bundle.copyUrl(url, out);
+			verify(out, sha1);
+			return;
+		}
+
+		String path = OfflineBundle.urlPath(url);
+		Path local = cache != null && cache.isCacheable(path) ? cache.get(path) : getPrefetched(path);
+
+		if (local != null) {
+			Utils.linkOrCopy(local, out);
+			verify(out, sha1);
+		} else {
+			download(url, out, sha1);
+		}
+	}
+
+	/**
+	 * Download url to file, bypassing the bundle and artifact cache.
+	 */
+	static void download(String url, Path out, String sha1) throws IOException {
 		if (!url.startsWith(Reference.DEFAULT_MAVEN_SERVER)) {
-			HttpClient.downloadFile(new URL(url), out);
+			Path local = externalMirror != null ? resolveLocal(externalMirror, externalPath(url)) : null;
+
+			if (local != null) {
+				Utils.linkOrCopy(local, out);
+				verify(out, sha1);
+			} else {
+				HttpClient.downloadFile(new URL(substituteExternal(url)), out, sha1);
+			}
+
 			return;
 		}
 
 		String path = url.substring(Reference.DEFAULT_MAVEN_SERVER.length());
 
 		invokeWithFallbacks((service, arg) -> {
-			HttpClient.downloadFile(new URL(service.maven + arg), out);
+			Path local = resolveLocal(service.maven, arg);
+
+			if (local == null) {
+				HttpClient.downloadFile(new URL(service.maven + arg), out, sha1);
+			} else if (Files.isRegularFile(local)) {
+				Utils.linkOrCopy(local, out);
+				verify(out, sha1);
+			} else {
+				throw new NoSuchFileException(local.toString());
+			}
+
 			return null;
 		}, path);
 	}
 
+	// For sources that aren't streamed, removes the file again if it doesn't match
+	private static void verify(Path file, String sha1) throws IOException {
+		if (sha1 == null) return;
+
+		String actual = Utils.sha1String(file);
+
+		if (!actual.equalsIgnoreCase(sha1)) {
+			Files.delete(file);
+			throw new IOException(String.format("SHA-1 mismatch for %s, expected %s but got %s", file, sha1, actual));
+		}
+	}
+
+	private static String substituteExternal(String url) throws IOException {
+		return externalMirror != null ? externalMirror + externalPath(url) : url;
+	}
+
+	// <host>/<path> as used below external/ by bundles and mirrors
+	private static String externalPath(String url) throws IOException {
+		return OfflineBundle.urlPath(url).substring("external/".length());
+	}
+
+	/**
+	 * Resolve path against a file:// url or plain directory base, for mirrors on a local or network file system.
+	 *
+	 * @return the local file, or null if base is a remote url
+	 */
+	private static Path resolveLocal(String base, String path) throws IOException {
+		if (base.startsWith("file:")) {
+			try {
+				return Paths.get(new URI(base)).resolve(path);
+			} catch (URISyntaxException | IllegalArgumentException e) {
+				throw new IOException("Invalid file url " + base, e);
+			}
+		}
+
+		if (base.contains("://")) {
+			return null;
+		}
+
+		return Paths.get(base).resolve(path);
+	}
+
 	private static <A, R> R invokeWithFallbacks(Handler<A, R> handler, A arg) throws IOException {
 		if (fixedService != null) return handler.apply(fixedService, arg);
 
@@ -102,6 +293,8 @@ public final class FabricService {
 
 	/**
 	 * Configure fixed service urls, disabling fallbacks or the defaults.
+	 *
+	 * <p>Either may also be a file:// url or a plain directory path, which is then read directly from disk.
 	 */
 	public static void setFixed(String metaUrl, String mavenUrl) {
 		if (metaUrl == null && mavenUrl == null) throw new NullPointerException("both meta and maven are null");
@@ -113,6 +306,91 @@ public final class FabricService {
 		fixedService = new FabricService(metaUrl, mavenUrl);
 	}
 
+	/**
+	 * Fetch non Fabric Maven urls, such as the Mojang manifests and server jars, through a mirror using the
+	 * {@code <host>/<path>} layout, for example the external/ path of the mirror command. Null restores direct access.
+	 */
+	public static void setExternalMirror(String url) {
+		externalMirror = url;
+	}
+
+	/**
+	 * Serve requests from a local artifact cache, filling it from the configured services on a miss.
+	 */
+	public static void setCache(ArtifactCache cache) {
+		FabricService.cache = cache;
+	}
+
+	/**
+	 * Use immutable files a {@link net.fabricmc.installer.Prefetcher#prefetchInBackground background prefetch} put
+	 * into cache, without fetching anything else through it. Unlike {@link #setCache} version lists and other
+	 * changing data are never served from it.
+	 */
+	public static void setPrefetchCache(ArtifactCache cache) {
+		prefetchCache = cache;
+	}
+
+	public static ArtifactCache getPrefetchCache() {
+		return prefetchCache;
+	}
+
+	private static Path getPrefetched(String path) throws IOException {
+		return cache == null && prefetchCache != null ? prefetchCache.getIfPresent(path) : null;
+	}
+
+	/**
+	 * Serve all requests from an offline bundle, without any network access.
+	 */
+	public static void setBundle(OfflineBundle bundle) {
+		FabricService.bundle = bundle;
+	}
+
+	/**
+	 * Start connecting to the configured meta, maven and Mojang hosts in the background, see {@link HttpClient#prewarm}.
+	 * Does nothing for offline bundles or local mirrors, as those runs aren't meant to reach the network.
+	 */
+	public static void prewarmConnections() {
+		if (bundle != null) return;
+
+		FabricService service = fixedService != null ? fixedService : Reference.FABRIC_SERVICES[activeIndex];
+		List<URL> urls = new ArrayList<>();
+
+		for (String url : new String[] {service.meta, service.maven, externalMirror != null ? externalMirror : Reference.MINECRAFT_LAUNCHER_MANIFEST}) {
+			if (url == null) continue;
+
+			try {
+				URL parsed = new URL(url);
+				if (!parsed.getProtocol().equals("http") && !parsed.getProtocol().equals("https")) return;
+
+				urls.add(parsed);
+			} catch (MalformedURLException e) {
+				// A local path
+				return;
+			}
+		}
+
+		HttpClient.prewarm(urls);
+	}
+
+	public static boolean isBundled() {
+		return bundle != null;
+	}
+
+	/**
+	 * Identifies the configured sources, so data fetched from one isn't reused for another.
+	 *
+	 * @return the identity, or null if all data comes from an offline bundle
+	 */
+	static String getSourceKey() {
+		if (bundle != null) return null;
+
+		return (fixedService != null ? fixedService.meta + " " + fixedService.maven : "default") + " " + externalMirror;
+	}
+
+	public static ArtifactCache getCache() {
+		return cache;
+	}
+
 	FabricService(String meta, String maven) {
 		this.meta = meta;
 		this.maven = maven;
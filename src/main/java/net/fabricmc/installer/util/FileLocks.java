@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.util;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coordinates downloads of the same file between threads and processes, such as several server launchers sharing a
+ * library directory or cache.
+ *
+ * <p>Each file is guarded by an in-process lock and a {@link FileChannel} lock on a file in a lock directory owned by
+ * the installer, such as {@code .locks} in a cache, so no lock files end up next to the artifacts. Files are written
+ * to a unique temporary file and atomically renamed into place, so other processes only ever see complete files.
+ *
+ * <p>While using a lock directory a process holds a shared lock on its guard file, lock files are only deleted by
+ * {@link #deleteUnused} while no process uses the directory.
+ */
+public final class FileLocks {
+	/** The lock directory within a cache or shared library directory. */
+	public static final String LOCK_DIR = ".locks";
+	public static final String LOCK_SUFFIX = ".lock";
+	private static final String GUARD_FILE = "directory.guard";
+
+	// Entries are removed once no thread holds or waits for them
+	private static final Map<Path, Entry> LOCKS = new ConcurrentHashMap<>();
+	// The guards of the lock directories in use by this process, a file can only be locked once per process
+	private static final Map<Path, Guard> GUARDS = new HashMap<>();
+
+	private FileLocks() {
+	}
+
+	/**
+	 * Run action while holding the lock for file, blocking until other threads or processes release it.
+	 *
+	 * @param lockDir the directory to create the lock file in, processes have to use the same one for a file
+	 */
+	public static <T> T withLock(Path lockDir, Path file, IOSupplier<T> action) throws IOException {
+		lockDir = lockDir.toAbsolutePath().normalize();
+		file = file.toAbsolutePath().normalize();
+		Path lockFile = lockDir.resolve(lockName(lockDir, file));
+		acquireGuard(lockDir);
+
+		try {
+			return withFileLock(lockFile, file, action);
+		} finally {
+			releaseGuard(lockDir);
+		}
+	}
+
+	private static <T> T withFileLock(Path lockFile, Path file, IOSupplier<T> action) throws IOException {
+		Entry entry = LOCKS.compute(lockFile, (key, value) -> {
+			if (value == null) value = new Entry();
+			value.users++;
+			return value;
+		});
+
+		entry.lock.lock();
+
+		try {
+			// The file lock is held per process, locking it again from the same process would fail
+			if (entry.lock.getHoldCount() > 1) return action.get();
+
+			Files.createDirectories(file.getParent());
+
+			try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+				FileLock fileLock = channel.lock();
+
+				try {
+					return action.get();
+				} finally {
+					fileLock.release();
+				}
+			}
+		} finally {
+			entry.lock.unlock();
+			LOCKS.computeIfPresent(lockFile, (key, value) -> --value.users == 0 ? null : value);
+		}
+	}
+
+	/**
+	 * Delete the lock files in lockDir unless another thread or process is using the directory.
+	 *
+	 * @param dryRun only list the lock files that would be deleted
+	 * @return the deleted lock files, empty if the directory is in use
+	 */
+	public static List<Path> deleteUnused(Path lockDir, boolean dryRun) throws IOException {
+		lockDir = lockDir.toAbsolutePath().normalize();
+		List<Path> deleted = new ArrayList<>();
+
+		synchronized (GUARDS) {
+			if (GUARDS.containsKey(lockDir) || !Files.isDirectory(lockDir)) return deleted;
+
+			try (FileChannel channel = FileChannel.open(lockDir.resolve(GUARD_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+				FileLock guardLock = channel.tryLock();
+				if (guardLock == null) return deleted;
+
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(lockDir, "*" + LOCK_SUFFIX)) {
+					for (Path lockFile : stream) {
+						if (!dryRun) Files.delete(lockFile);
+						deleted.add(lockFile);
+					}
+				} finally {
+					guardLock.release();
+				}
+			}
+		}
+
+		return deleted;
+	}
+
+	private static void acquireGuard(Path lockDir) throws IOException {
+		synchronized (GUARDS) {
+			Guard guard = GUARDS.get(lockDir);
+
+			if (guard == null) {
+				Files.createDirectories(lockDir);
+				FileChannel channel = FileChannel.open(lockDir.resolve(GUARD_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+				try {
+					guard = new Guard(channel, channel.lock(0, Long.MAX_VALUE, true));
+				} catch (IOException | RuntimeException e) {
+					channel.close();
+					throw e;
+				}
+
+				GUARDS.put(lockDir, guard);
+			}
+
+			guard.users++;
+		}
+	}
+
+	private static void releaseGuard(Path lockDir) throws IOException {
+		synchronized (GUARDS) {
+			Guard guard = GUARDS.get(lockDir);
+			if (--guard.users > 0) return;
+
+			GUARDS.remove(lockDir);
+
+			try {
+				guard.lock.release();
+			} finally {
+				guard.channel.close();
+			}
+		}
+	}
+
+	// Readable file name plus a hash of the path relative to the lock directory, which is the same for every process sharing it
+	private static String lockName(Path lockDir, Path file) {
+		String path;
+
+		try {
+			path = lockDir.relativize(file).toString().replace('\\', '/');
+		} catch (IllegalArgumentException e) {
+			// Different root (e.g. another drive on windows)
+			path = file.toString();
+		}
+
+		String hash = Utils.bytesToHex(Utils.sha1Digest().digest(path.getBytes(StandardCharsets.UTF_8)));
+
+		return file.getFileName() + "-" + hash.substring(0, 16) + LOCK_SUFFIX;
+	}
+
+	/**
+	 * Download file unless it is valid, checked again once the lock is held so a file published by another process
+	 * while waiting is reused.
+	 */
+	public static void download(Path lockDir, Path file, Validator validator, Downloader downloader) throws IOException {
+		withLock(lockDir, file, () -> {
+			if (validator.isValid(file)) return null;
+
+			Path tmp = tempFile(file);
+
+			try {
+				downloader.download(tmp);
+				Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
+
+			return null;
+		});
+	}
+
+	/**
+	 * A unique, not yet existing, temporary file next to file. Unlike {@link Files#createTempFile} the file is later
+	 * created with the default permissions, as it is meant to be renamed into place.
+	 */
+	public static Path tempFile(Path file) {
+		return file.toAbsolutePath().resolveSibling(String.format("%s.%016x.tmp", file.getFileName(), ThreadLocalRandom.current().nextLong()));
+	}
+
+	/**
+	 * A validator accepting a file only if it was replaced after this call, for files that are always downloaded
+	 * again unless another process just did so.
+	 */
+	public static Validator changedSince(Path file) {
+		String before = identity(file);
+
+		return f -> {
+			String now = identity(f);
+			return now != null && !now.equals(before);
+		};
+	}
+
+	// The file key changes when a file is atomically replaced, the modification time covers file systems without one
+	private static String identity(Path file) {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+			return attributes.fileKey() + "/" + attributes.lastModifiedTime().toMillis();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static final class Entry {
+		final ReentrantLock lock = new ReentrantLock();
+		// Guarded by the map's compute methods
+		int users;
+	}
+
+	private static final class Guard {
+		final FileChannel channel;
+		final FileLock lock;
+		// Guarded by GUARDS
+		int users;
+
+		Guard(FileChannel channel, FileLock lock) {
+			this.channel = channel;
+			this.lock = lock;
+		}
+	}
+
+	public interface IOSupplier<T> {
+		T get() throws IOException;
+	}
+
+	public interface Validator {
+		boolean isValid(Path file) throws IOException;
+	}
+
+	public interface Downloader {
+		void download(Path out) throws IOException;
+	}
+}
@@ -28,10 +28,13 @@ import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -54,21 +57,88 @@ public final class HttpClient {
 		return tryWithProxies(url, Utils::readString);
 	}
 
+	/**
+	 * Stream the response body of url into handler, which may stop reading early.
+	 */
+	public static <T> T read(URL url, Handler<T> handler) throws IOException {
+		return tryWithProxies(url, handler);
+	}
+
+	/**
+	 * Connect to each distinct http(s) host of urls concurrently in the background, so that the DNS lookup and TLS
+	 * handshake are out of the way before the first real request. The idle connection is left in the JDK keep-alive
+	 * cache for that request to pick up, and later connections can resume the TLS session.
+	 *
+	 * <p>Proxies are tried in the same order as for real requests, so a working proxy is already known by then.
+	 */
+	public static void prewarm(Collection<URL> urls) {
+		Set<String> origins = new LinkedHashSet<>();
+
+		for (URL url : urls) {
+			if (url.getProtocol().equals("http") || url.getProtocol().equals("https")) {
+				origins.add(url.getProtocol() + "://" + url.getAuthority() + "/");
+			}
+		}
+
+		for (String origin : origins) {
+			Thread thread = new Thread(() -> prewarm(origin), "Connection Prewarm " + origin);
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	private static void prewarm(String origin) {
+		try {
+			URL url = new URL(origin);
+
+			requestWithProxies(url, proxy -> {
+				HttpURLConnection conn = (HttpURLConnection) url.openConnection(proxy);
+				conn.setRequestMethod("HEAD");
+				conn.setConnectTimeout(HTTP_TIMEOUT_MS);
+				conn.setReadTimeout(HTTP_TIMEOUT_MS);
+				// Any status will do, a HEAD response has no body so the connection goes straight back to the keep-alive cache
+				conn.getResponseCode();
+				return null;
+			});
+		} catch (IOException e) {
+			// The real request reports the problem
+		}
+	}
+
 	public static void downloadFile(URL url, Path path) throws IOException {
+		downloadFile(url, path, null);
+	}
+
+	/**
+	 * Download url to path, verifying the SHA-1 of the data as it is received.
+	 *
+	 * @param sha1 the expected hex SHA-1, or null to skip verification
+	 */
+	public static void downloadFile(URL url, Path path, String sha1) throws IOException {
+		Files.createDirectories(path.toAbsolutePath().getParent());
+		// Written next to the target and renamed once complete, so a failed download never leaves a partial file behind
+		Path tmp = FileLocks.tempFile(path);
+
 		try {
 			tryWithProxies(url, (Handler<Void>) in -> {
-				Files.createDirectories(path.getParent());
-				Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
+				if (sha1 == null) {
+					Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+				} else {
+					DigestInputStream digestIn = new DigestInputStream(in, Utils.sha1Digest());
+					Files.copy(digestIn, tmp, StandardCopyOption.REPLACE_EXISTING);
+					String actual = Utils.bytesToHex(digestIn.getMessageDigest().digest());
+
+					if (!actual.equalsIgnoreCase(sha1)) {
+						throw new IOException(String.format("SHA-1 mismatch for %s, expected %s but got %s", url, sha1, actual));
+					}
+				}
+
 				return null;
 			});
-		} catch (Throwable t) {
-			try {
-				Files.deleteIfExists(path);
-			} catch (Throwable t2) {
-				t.addSuppressed(t2);
-			}
 
-			throw t;
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
 		}
 	}
 
@@ -126,6 +196,14 @@ public final class HttpClient {
 	}
 
 	private static <T> T tryWithProxies(URL url, Handler<T> handler) throws IOException {
+		return requestWithProxies(url, proxy -> {
+			try (InputStream is = openUrl(url, proxy)) {
+				return handler.read(is);
+			}
+		});
+	}
+
+	private static <T> T requestWithProxies(URL url, ProxyRequest<T> request) throws IOException {
 		URI uri;
 
 		try {
@@ -137,12 +215,14 @@ public final class HttpClient {
 		Set<Proxy> attemptedProxies = new HashSet<>();
 		IOException exception = null;
 
-		// try lastSuccessfulProxy first, if available
-		if (lastSuccessfulProxy != null) {
-			attemptedProxies.add(lastSuccessfulProxy);
+		// try lastSuccessfulProxy first, if available, read once as concurrent requests may reset it
+		Proxy lastProxy = lastSuccessfulProxy;
 
-			try (InputStream is = openUrl(url, lastSuccessfulProxy)) {
-				return handler.read(is);
+		if (lastProxy != null) {
+			attemptedProxies.add(lastProxy);
+
+			try {
+				return request.run(lastProxy);
 			} catch (IOException e) {
 				HttpClient.lastSuccessfulProxy = null; // failed, remove priority for the specific proxy
 				exception = new IOException(String.format("Request to %s failed: %s", uri, e.getMessage()), e);
@@ -166,12 +246,7 @@ public final class HttpClient {
 				}
 
 				try {
-					T value;
-
-					try (InputStream is = openUrl(url, proxy)) {
-						value = handler.read(is);
-					}
-
+					T value = request.run(proxy);
 					HttpClient.lastSuccessfulProxy = proxy; // Store the last used proxy so we can try it first next time
 
 					return value;
@@ -195,13 +270,20 @@ public final class HttpClient {
 		}
 	}
 
+	private interface ProxyRequest<T> {
+		T run(Proxy proxy) throws IOException;
+	}
+
 	private interface ProxySupplier {
 		// Returns a list of proxies for the given URI, or a null list if no proxy should be used.
 		// A null proxy entry in the list is skipped.
 		List<Proxy> getProxies(URI uri) throws IOException;
 	}
 
-	private interface Handler<T> {
+	/**
+	 * Consumes a response body, the stream is closed once the handler returns.
+	 */
+	public interface Handler<T> {
 		T read(InputStream in) throws IOException;
 	}
 }
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal pull parser for reading selected fields out of large JSON documents without building a tree.
+ *
+ * <p>The structure, including the {@code ,} and {@code :} separators, is validated as it is read, so corrupt input
+ * such as a truncated or concatenated response fails instead of being misread. Values that aren't needed are skipped
+ * with {@link #skipValue()}.
+ */
+public final class JsonReader {
+	// The state of each open document, array or object
+	private static final int EMPTY_DOCUMENT = 0;
+	private static final int NONEMPTY_DOCUMENT = 1;
+	private static final int EMPTY_ARRAY = 2;
+	private static final int NONEMPTY_ARRAY = 3;
+	private static final int ARRAY_AFTER_COMMA = 4;
+	private static final int EMPTY_OBJECT = 5;
+	private static final int NONEMPTY_OBJECT = 6;
+	private static final int OBJECT_AFTER_COMMA = 7;
+	private static final int DANGLING_NAME = 8;
+
+	private final Reader reader;
+	private int peeked = -2;
+	private int[] scopes = new int[16];
+	private int depth = 1;
+
+	public JsonReader(Reader reader) {
+		this.reader = reader;
+		scopes[0] = EMPTY_DOCUMENT;
+	}
+
+	/**
+	 * Read UTF-8 JSON from a stream through a small fixed size buffer.
+	 */
+	public JsonReader(InputStream in) {
+		this(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+	}
+
+	public void beginObject() throws IOException {
+		expect(beginValue(), '{');
+		push(EMPTY_OBJECT);
+	}
+
+	public void endObject() throws IOException {
+		end(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+	}
+
+	public void beginArray() throws IOException {
+		expect(beginValue(), '[');
+		push(EMPTY_ARRAY);
+	}
+
+	public void endArray() throws IOException {
+		end(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+	}
+
+	/**
+	 * Check whether the current object or array has another element, consuming the , before it.
+	 */
+	public boolean hasNext() throws IOException {
+		int c = peekToken();
+		if (c == -1) throw new IOException("Unexpected end of JSON input");
+
+		switch (scopes[depth - 1]) {
+		case EMPTY_ARRAY:
+		case EMPTY_OBJECT:
+			return c != '}' && c != ']';
+		case NONEMPTY_ARRAY:
+		case NONEMPTY_OBJECT:
+			if (c == '}' || c == ']') return false;
+
+			expect(c, ',');
+			scopes[depth - 1] = scopes[depth - 1] == NONEMPTY_ARRAY ? ARRAY_AFTER_COMMA : OBJECT_AFTER_COMMA;
+			return true;
+		case ARRAY_AFTER_COMMA:
+		case OBJECT_AFTER_COMMA:
+			return true;
+		default:
+			throw new IOException("Not within an array or object");
+		}
+	}
+
+	public String nextName() throws IOException {
+		switch (scopes[depth - 1]) {
+		case NONEMPTY_OBJECT:
+			expect(peekToken(), ',');
+			break;
+		case EMPTY_OBJECT:
+		case OBJECT_AFTER_COMMA:
+			break;
+		default:
+			throw new IOException("Expected a value but found a name");
+		}
+
+		scopes[depth - 1] = DANGLING_NAME;
+
+		return readString(peekToken());
+	}
+
+	public String nextString() throws IOException {
+		return readString(beginValue());
+	}
+
+	public boolean nextBoolean() throws IOException {
+		String literal = readLiteral(beginValue());
+
+		if (literal.equals("true")) {
+			return true;
+		} else if (literal.equals("false")) {
+			return false;
+		} else {
+			throw new IOException("Expected a boolean but found " + literal);
+		}
+	}
+
+	public long nextLong() throws IOException {
+		String literal = readLiteral(beginValue());
+
+		try {
+			return Long.parseLong(literal);
+		} catch (NumberFormatException e) {
+			throw new IOException("Expected a number but found " + literal);
+		}
+	}
+
+	/**
+	 * Skip the next value, including any nested objects or arrays.
+	 */
+	public void skipValue() throws IOException {
+		int c = beginValue();
+
+		if (c == '{' || c == '[') {
+			read();
+			push(c == '{' ? EMPTY_OBJECT : EMPTY_ARRAY);
+
+			while (hasNext()) {
+				if (c == '{') nextName();
+				skipValue();
+			}
+
+			if (c == '{') {
+				endObject();
+			} else {
+				endArray();
+			}
+		} else if (c == '"') {
+			readString(c);
+		} else {
+			readLiteral(c);
+		}
+	}
+
+	// Consume the separator before the next value, returns the first character of the value
+	private int beginValue() throws IOException {
+		switch (scopes[depth - 1]) {
+		case EMPTY_DOCUMENT:
+			scopes[depth - 1] = NONEMPTY_DOCUMENT;
+			break;
+		case NONEMPTY_DOCUMENT:
+			throw new IOException("Unexpected data after the end of the JSON document");
+		case NONEMPTY_ARRAY:
+			expect(peekToken(), ',');
+			// fall through
+		case EMPTY_ARRAY:
+		case ARRAY_AFTER_COMMA:
+			scopes[depth - 1] = NONEMPTY_ARRAY;
+			break;
+		case DANGLING_NAME:
+			expect(peekToken(), ':');
+			scopes[depth - 1] = NONEMPTY_OBJECT;
+			break;
+		default:
+			throw new IOException("Expected a name but found a value");
+		}
+
+		return peekToken();
+	}
+
+	private void end(int emptyScope, int nonEmptyScope, char end) throws IOException {
+		int scope = scopes[depth - 1];
+		int c = peekToken();
+
+		if (scope != emptyScope && scope != nonEmptyScope) {
+			throw new IOException(String.format("Unexpected '%s', a value is missing", end));
+		}
+
+		expect(c, end);
+		depth--;
+	}
+
+	private void push(int scope) {
+		if (depth == scopes.length) scopes = Arrays.copyOf(scopes, depth * 2);
+
+		scopes[depth++] = scope;
+	}
+
+	private String readString(int c) throws IOException {
+		expect(c, '"');
+		StringBuilder sb = new StringBuilder();
+
+		for (;;) {
+			c = read();
+
+			switch (c) {
+			case -1:
+				throw new IOException("Unterminated JSON string");
+			case '"':
+				return sb.toString();
+			case '\\':
+				sb.append(readEscape());
+				break;
+			default:
+				sb.append((char) c);
+			}
+		}
+	}
+
+	// Number, boolean or null
+	private String readLiteral(int c) throws IOException {
+		if (c == -1) throw new IOException("Unexpected end of JSON input");
+		if (c != '-' && c != 't' && c != 'f' && c != 'n' && (c < '0' || c > '9')) throw new IOException("Expected a value but found '" + (char) c + "'");
+
+		StringBuilder sb = new StringBuilder();
+
+		while (c != -1 && c != ',' && c != ':' && c != '}' && c != ']' && !Character.isWhitespace(c)) {
+			sb.append((char) read());
+			c = peek();
+		}
+
+		return sb.toString();
+	}
+
+	private char readEscape() throws IOException {
+		int c = read();
+
+		switch (c) {
+		case 'b': return '\b';
+		case 'f': return '\f';
+		case 'n': return '\n';
+		case 'r': return '\r';
+		case 't': return '\t';
+		case 'u':
+			char[] hex = new char[4];
+
+			for (int i = 0; i < hex.length; i++) {
+				int h = read();
+				if (h == -1) throw new IOException("Unterminated JSON escape");
+				hex[i] = (char) h;
+			}
+
+			try {
+				return (char) Integer.parseInt(new String(hex), 16);
+			} catch (NumberFormatException e) {
+				throw new IOException("Invalid JSON escape \\u" + new String(hex));
+			}
+		case -1:
+			throw new IOException("Unterminated JSON escape");
+		default:
+			// \" \\ \/
+			return (char) c;
+		}
+	}
+
+	private void expect(int c, char expected) throws IOException {
+		if (c != expected) {
+			throw new IOException(String.format("Expected '%s' but found %s", expected, c == -1 ? "end of input" : "'" + (char) c + "'"));
+		}
+
+		read();
+	}
+
+	// Next significant character
+	private int peekToken() throws IOException {
+		int c;
+
+		while ((c = peek()) != -1 && Character.isWhitespace(c)) {
+			read();
+		}
+
+		return c;
+	}
+
+	private int peek() throws IOException {
+		if (peeked == -2) peeked = reader.read();
+
+		return peeked;
+	}
+
+	private int read() throws IOException {
+		int c = peek();
+		peeked = -2;
+
+		return c;
+	}
+}
@@ -17,70 +17,180 @@
 package net.fabricmc.installer.util;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 import mjson.Json;
 
 public class LauncherMeta {
-	private static LauncherMeta launcherMeta = null;
+	private static final String[] MANIFESTS = {Reference.MINECRAFT_LAUNCHER_MANIFEST, Reference.EXPERIMENTAL_LAUNCHER_MANIFEST};
+	private static final SingleFlight<String, LauncherMeta> LAUNCHER_META = SingleFlight.memoize();
+	private static final SingleFlight<String, Version> VERSIONS = SingleFlight.memoize();
+	private static final SingleFlight<String, VersionMeta> VERSION_META = SingleFlight.memoize();
 
 	public static LauncherMeta getLauncherMeta() throws IOException {
-		if (launcherMeta == null) {
-			launcherMeta = load();
-		}
+		return LAUNCHER_META.get(Reference.MINECRAFT_LAUNCHER_MANIFEST, LauncherMeta::load);
+	}
 
-		return launcherMeta;
+	/**
+	 * Look up a single version in the loaded metadata or the metadata snapshot, otherwise only reading the manifests up
+	 * to its entry.
+	 *
+	 * @return the version, or null if neither manifest lists it
+	 */
+	public static Version findVersion(String id) throws IOException {
+		LauncherMeta loaded = LAUNCHER_META.getIfPresent(Reference.MINECRAFT_LAUNCHER_MANIFEST);
+		if (loaded != null) return loaded.getVersion(id);
+
+		return VERSIONS.get(id, () -> {
+			for (String manifest : MANIFESTS) {
+				// The url of a version never changes, so even an old snapshot can be trusted for ids it lists
+				List<String[]> records = MetaSnapshot.get(snapshotSection(manifest), true);
+				String url = records != null ? toIndex(records).get(id) : null;
+				if (url == null) url = readIndex(manifest, id).get(id);
+
+				if (url != null) return new Version(id, url);
+			}
+
+			return null;
+		});
 	}
 
 	private static LauncherMeta load() throws IOException {
-		List<Version> versions = new ArrayList<>();
-		versions.addAll(getVersionsFromUrl(Reference.MINECRAFT_LAUNCHER_MANIFEST));
-		versions.addAll(getVersionsFromUrl(Reference.EXPERIMENTAL_LAUNCHER_MANIFEST));
+		Map<String, String> index = new LinkedHashMap<>();
+
+		for (String manifest : MANIFESTS) {
+			List<String[]> records = MetaSnapshot.load(snapshotSection(manifest), () -> {
+				List<String[]> ret = new ArrayList<>();
+				readIndex(manifest, null).forEach((id, url) -> ret.add(new String[] {id, url}));
+				return ret;
+			});
+
+			toIndex(records).forEach(index::putIfAbsent);
+		}
+
+		List<Version> versions = new ArrayList<>(index.size());
+		index.forEach((id, url) -> versions.add(new Version(id, url)));
 
 		return new LauncherMeta(versions);
 	}
 
-	private static List<Version> getVersionsFromUrl(String url) throws IOException {
-		Json json = FabricService.queryJsonSubstitutedMaven(url);
+	private static String snapshotSection(String manifest) {
+		return "manifest/" + manifest;
+	}
 
-		List<Version> versions = json.at("versions").asJsonList()
-				.stream()
-				.map(Version::new)
-				.collect(Collectors.toList());
+	private static Map<String, String> toIndex(List<String[]> records) {
+		Map<String, String> ret = new LinkedHashMap<>(records.size() * 2);
 
-		return versions;
+		for (String[] record : records) {
+			ret.putIfAbsent(record[0], record[1]);
+		}
+
+		return ret;
+	}
+
+	private static Map<String, String> readIndex(String url, String stopAt) throws IOException {
+		return FabricService.readSubstitutedMaven(url, in -> readIndex(new JsonReader(in), stopAt));
+	}
+
+	/**
+	 * Stream the id and url of each version out of a launcher manifest, skipping everything else.
+	 *
+	 * @param stopAt only look for this id and stop reading once it was found, or null to read the whole manifest
+	 * @return the version urls by id, in manifest order
+	 */
+	public static Map<String, String> readIndex(Reader in, String stopAt) throws IOException {
+		return readIndex(new JsonReader(in), stopAt);
+	}
+
+	private static Map<String, String> readIndex(JsonReader reader, String stopAt) throws IOException {
+		Map<String, String> ret = new LinkedHashMap<>();
+
+		reader.beginObject();
+
+		while (reader.hasNext()) {
+			if (!reader.nextName().equals("versions")) {
+				reader.skipValue();
+				continue;
+			}
+
+			reader.beginArray();
+
+			while (reader.hasNext()) {
+				String id = null;
+				String versionUrl = null;
+
+				reader.beginObject();
+
+				while (reader.hasNext()) {
+					switch (reader.nextName()) {
+					case "id":
+						id = reader.nextString();
+						break;
+					case "url":
+						versionUrl = reader.nextString();
+						break;
+					default:
+						reader.skipValue();
+					}
+				}
+
+				reader.endObject();
+
+				if (id == null || versionUrl == null) continue;
+
+				if (stopAt == null) {
+					ret.putIfAbsent(id, versionUrl);
+				} else if (id.equals(stopAt)) {
+					ret.put(id, versionUrl);
+					return ret;
+				}
+			}
+
+			reader.endArray();
+		}
+
+		reader.endObject();
+
+		return ret;
 	}
 
 	public final List<Version> versions;
+	private final Map<String, Version> byId;
 
 	public LauncherMeta(List<Version> versions) {
 		this.versions = versions;
+		this.byId = new HashMap<>(versions.size() * 2);
+
+		for (Version version : versions) {
+			byId.putIfAbsent(version.id, version);
+		}
 	}
 
 	public static class Version {
 		public final String id;
 		public final String url;
 
-		private VersionMeta versionMeta = null;
-
 		public Version(Json json) {
-			this.id = json.at("id").asString();
-			this.url = json.at("url").asString();
+			this(json.at("id").asString(), json.at("url").asString());
 		}
 
-		public VersionMeta getVersionMeta() throws IOException {
-			if (versionMeta == null) {
-				Json json = FabricService.queryJsonSubstitutedMaven(url);
-				versionMeta = new VersionMeta(json);
-			}
+		public Version(String id, String url) {
+			this.id = id;
+			this.url = url;
+		}
 
-			return versionMeta;
+		public VersionMeta getVersionMeta() throws IOException {
+			// Keyed by url, version json files are immutable
+			return VERSION_META.get(url, () -> FabricService.readSubstitutedMaven(url, in -> VersionMeta.read(new JsonReader(in))));
 		}
 	}
 
 	public Version getVersion(String version) {
-		return versions.stream().filter(v -> v.id.equals(version)).findFirst().orElse(null);
+		return byId.get(version);
 	}
 }
@@ -17,8 +17,11 @@
 package net.fabricmc.installer.util;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import mjson.Json;
@@ -27,6 +30,7 @@ public class MetaHandler extends CompletableHandler<List<MetaHandler.GameVersion
 	private final String name;
 	private final String metaPath;
 	private List<GameVersion> versions;
+	private Map<String, GameVersion> byVersion;
 
 	public MetaHandler(String name, String path) {
 		this.name = name;
@@ -38,16 +42,60 @@ public class MetaHandler extends CompletableHandler<List<MetaHandler.GameVersion
 	}
 
 	public void load() throws IOException {
-		Json json = FabricService.queryMetaJson(metaPath);
+		List<String[]> records = MetaSnapshot.load("meta/" + metaPath, () -> FabricService.readMeta(metaPath, in -> readVersions(new JsonReader(in))));
 
-		this.versions = json.asJsonList()
-				.stream()
-				.map(GameVersion::new)
+		this.versions = records.stream()
+				.map(record -> new GameVersion(record[0], Boolean.parseBoolean(record[1])))
 				.collect(Collectors.toList());
 
+		Map<String, GameVersion> byVersion = new HashMap<>(versions.size() * 2);
+
+		for (GameVersion version : versions) {
+			byVersion.putIfAbsent(version.version, version);
+		}
+
+		this.byVersion = byVersion;
+
 		complete(versions);
 	}
 
+	// Only the version and stable flag of each entry, without building a tree of the whole list
+	private static List<String[]> readVersions(JsonReader reader) throws IOException {
+		List<String[]> ret = new ArrayList<>();
+
+		reader.beginArray();
+
+		while (reader.hasNext()) {
+			String version = null;
+			boolean stable = false;
+
+			reader.beginObject();
+
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case "version":
+					version = reader.nextString();
+					break;
+				case "stable":
+					stable = reader.nextBoolean();
+					break;
+				default:
+					reader.skipValue();
+				}
+			}
+
+			reader.endObject();
+
+			if (version == null) throw new IOException("Version entry without version");
+
+			ret.add(new String[] {version, Boolean.toString(stable)});
+		}
+
+		reader.endArray();
+
+		return ret;
+	}
+
 	public List<GameVersion> getVersions() {
 		return Collections.unmodifiableList(versions);
 	}
@@ -70,23 +118,45 @@ public class MetaHandler extends CompletableHandler<List<MetaHandler.GameVersion
 		if (value == null || value.isEmpty() || value.equalsIgnoreCase("latest")) {
 			return getLatestVersion(snapshot);
 		} else {
-			for (GameVersion version : versions) {
-				if (version.version.equals(value)) {
-					return version;
-				}
-			}
-
-			return null;
+			return byVersion.get(value);
 		}
 	}
 
+	/**
+	 * Resolve a version name, or latest if null or empty, for command line arguments.
+	 *
+	 * <p>If the version list wasn't loaded an exact version is returned as is, it is then only validated by the meta
+	 * request for its profile or server json.
+	 *
+	 * @throws IllegalArgumentException if the version is unknown
+	 */
+	public String resolveVersion(String value, boolean snapshot) {
+		if (versions == null && isExact(value)) return value;
+
+		GameVersion ret = parseVersion(value, snapshot);
+		if (ret == null) throw new IllegalArgumentException(String.format("unknown %s version: %s", name, value));
+
+		return ret.getVersion();
+	}
+
+	/**
+	 * Whether value names a specific version, rather than the latest one.
+	 */
+	public static boolean isExact(String value) {
+		return value != null && !value.isEmpty() && !value.equalsIgnoreCase("latest");
+	}
+
 	public static final class GameVersion {
 		final String version;
 		final boolean stable;
 
 		public GameVersion(Json json) {
-			version = json.at("version").asString();
-			stable = json.at("stable").asBoolean();
+			this(json.at("version").asString(), json.at("stable").asBoolean());
+		}
+
+		public GameVersion(String version, boolean stable) {
+			this.version = version;
+			this.stable = stable;
 		}
 
 		public String getVersion() {
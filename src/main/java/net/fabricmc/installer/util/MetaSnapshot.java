@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact binary copy of the parsed version lists, so a start doesn't have to fetch and parse the JSON again.
+ *
+ * <p>The snapshot is only used with a configured artifact cache and is kept in its directory. It holds one section
+ * per version list, each a list of string records and the time it was fetched. Sections younger than the cache's
+ * {@link ArtifactCache#getTtlMs() TTL} are used directly, older ones are refreshed and only used if that fails. The
+ * file is memory mapped and decoded once per process, without any JSON parsing. Set the fabric.installer.metaSnapshot
+ * system property to false to disable it.
+ */
+public final class MetaSnapshot {
+	public static final String FILE_NAME = "meta.snapshot";
+
+	private static final int MAGIC = 0x464d5331; // FMS1
+	private static final boolean ENABLED = !"false".equals(System.getProperty("fabric.installer.metaSnapshot"));
+	// Decoded snapshots by file, kept up to date with the writes of this process
+	private static final Map<Path, Map<String, Section>> SNAPSHOTS = new ConcurrentHashMap<>();
+
+	private MetaSnapshot() {
+	}
+
+	/**
+	 * Get the records of a section, from the snapshot if it is fresh or from loader otherwise.
+	 *
+	 * <p>Freshly loaded records are written back to the snapshot. If loader fails, stale records are used instead.
+	 */
+	public static List<String[]> load(String section, Loader loader) throws IOException {
+		ArtifactCache cache = FabricService.getCache();
+		Path file = getFile(cache);
+		if (file == null) return loader.load();
+
+		Section cached = sections(file).get(section);
+		if (cached != null && cached.isFresh(cache.getTtlMs())) return cached.records;
+
+		List<String[]> records;
+
+		try {
+			records = loader.load();
+		} catch (IOException e) {
+			if (cached == null) throw e;
+
+			System.err.println("Using version list from " + file + ", refresh failed: " + e.getMessage());
+			return cached.records;
+		}
+
+		try {
+			write(file, section, records);
+		} catch (IOException e) {
+			// Only an optimisation
+			System.err.println("Failed to update metadata snapshot " + file + ": " + e.getMessage());
+		}
+
+		return records;
+	}
+
+	/**
+	 * Get the records of a section from the snapshot alone.
+	 *
+	 * @param allowStale whether records older than the refresh interval may be returned
+	 * @return the records, or null if there are none
+	 */
+	public static List<String[]> get(String section, boolean allowStale) {
+		ArtifactCache cache = FabricService.getCache();
+		Path file = getFile(cache);
+		if (file == null) return null;
+
+		Section cached = sections(file).get(section);
+
+		return cached != null && (allowStale || cached.isFresh(cache.getTtlMs())) ? cached.records : null;
+	}
+
+	// Only kept alongside an explicitly configured cache, which already trades freshness for speed
+	private static Path getFile(ArtifactCache cache) {
+		if (!ENABLED || cache == null) return null;
+
+		String sourceKey = FabricService.getSourceKey();
+		if (sourceKey == null) return null;
+
+		// Different service configurations get their own snapshot
+		return cache.getDir().resolve(String.format("%s.%08x", FILE_NAME, sourceKey.hashCode()));
+	}
+
+	private static Map<String, Section> sections(Path file) {
+		return SNAPSHOTS.computeIfAbsent(file, MetaSnapshot::read);
+	}
+
+	private static Map<String, Section> read(Path file) {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// Windows can't replace a file while a mapping of it is still alive, which lasts until it is collected
+			ByteBuffer buffer = OperatingSystem.CURRENT == OperatingSystem.WINDOWS
+					? ByteBuffer.wrap(Files.readAllBytes(file))
+					: channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != MAGIC) return Collections.emptyMap();
+
+			int sectionCount = buffer.getInt();
+			Map<String, Section> ret = new LinkedHashMap<>(sectionCount * 2);
+
+			for (int i = 0; i < sectionCount; i++) {
+				String name = readString(buffer);
+				long time = buffer.getLong();
+				int recordCount = buffer.getInt();
+				int fieldCount = buffer.get();
+				List<String[]> records = new ArrayList<>(recordCount);
+
+				for (int j = 0; j < recordCount; j++) {
+					String[] record = new String[fieldCount];
+
+					for (int k = 0; k < fieldCount; k++) {
+						record[k] = readString(buffer);
+					}
+
+					records.add(record);
+				}
+
+				ret.put(name, new Section(time, Collections.unmodifiableList(records)));
+			}
+
+			return ret;
+		} catch (NoSuchFileException e) {
+			return Collections.emptyMap();
+		} catch (IOException | RuntimeException e) {
+			// Truncated or corrupt, it is rewritten on the next refresh
+			return Collections.emptyMap();
+		}
+	}
+
+	private static void write(Path file, String section, List<String[]> records) throws IOException {
+		FileLocks.withLock(file.resolveSibling(FileLocks.LOCK_DIR), file, () -> {
+			// Read again to keep the sections other processes wrote in the meantime
+			Map<String, Section> sections = new LinkedHashMap<>(read(file));
+			sections.put(section, new Section(System.currentTimeMillis(), records));
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(MAGIC);
+			out.writeInt(sections.size());
+
+			for (Map.Entry<String, Section> entry : sections.entrySet()) {
+				List<String[]> sectionRecords = entry.getValue().records;
+				int fieldCount = sectionRecords.isEmpty() ? 0 : sectionRecords.get(0).length;
+
+				writeString(out, entry.getKey());
+				out.writeLong(entry.getValue().time);
+				out.writeInt(sectionRecords.size());
+				out.writeByte(fieldCount);
+
+				for (String[] record : sectionRecords) {
+					if (record.length != fieldCount) throw new IllegalArgumentException("records of a section must have the same length");
+
+					for (String field : record) {
+						writeString(out, field);
+					}
+				}
+			}
+
+			Path tmp = FileLocks.tempFile(file);
+
+			try {
+				try (OutputStream os = Files.newOutputStream(tmp)) {
+					bytes.writeTo(os);
+				}
+
+				Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
+
+			SNAPSHOTS.put(file, sections);
+
+			return null;
+		});
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(DataOutputStream out, String str) throws IOException {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static final class Section {
+		final long time;
+		final List<String[]> records;
+
+		Section(long time, List<String[]> records) {
+			this.time = time;
+			this.records = records;
+		}
+
+		boolean isFresh(long ttlMs) {
+			long age = System.currentTimeMillis() - time;
+			return age >= 0 && age < ttlMs;
+		}
+	}
+
+	public interface Loader {
+		List<String[]> load() throws IOException;
+	}
+}
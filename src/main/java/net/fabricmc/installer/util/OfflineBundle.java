@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A zip archive holding everything required to install a fixed set of versions without network access.
+ *
+ * <p>The layout is shared with the other local artifact sources:
+ * <ul>
+ * <li>{@code meta/<path>.json}: Fabric Meta responses, e.g. {@code meta/v2/versions/game.json}</li>
+ * <li>{@code maven/<path>}: files from the Fabric Maven</li>
+ * <li>{@code external/<host>/<path>}: any other url, such as the Mojang version manifest and server jars</li>
+ * </ul>
+ */
+public final class OfflineBundle {
+	private final Path root;
+
+	private OfflineBundle(Path root) {
+		this.root = root;
+	}
+
+	public static OfflineBundle open(Path zip) throws IOException {
+		return open(zip, "/");
+	}
+
+	/**
+	 * Open a bundle stored in a directory of a larger zip, such as a server launcher jar with embedded artifacts.
+	 */
+	public static OfflineBundle open(Path zip, String root) throws IOException {
+		if (!Files.isRegularFile(zip)) throw new FileNotFoundException("Offline bundle not found at " + zip);
+
+		@SuppressWarnings("resource") // kept open for the lifetime of the installer
+		FileSystem fs = FileSystems.newFileSystem(zip, (ClassLoader) null);
+		return new OfflineBundle(fs.getPath("/").resolve(root));
+	}
+
+	/**
+	 * Relative path of a Fabric Meta response within a bundle.
+	 */
+	public static String metaPath(String path) {
+		return "meta/" + path + ".json";
+	}
+
+	/**
+	 * Relative path of a file downloaded from the given url within a bundle.
+	 */
+	public static String urlPath(String url) throws MalformedURLException {
+		if (url.startsWith(Reference.DEFAULT_MAVEN_SERVER)) {
+			return "maven/" + url.substring(Reference.DEFAULT_MAVEN_SERVER.length());
+		}
+
+		URL parsed = new URL(url);
+		return "external/" + parsed.getHost() + parsed.getPath();
+	}
+
+	InputStream openMeta(String path) throws IOException {
+		return Files.newInputStream(resolve(metaPath(path)));
+	}
+
+	InputStream openUrl(String url) throws IOException {
+		return Files.newInputStream(resolve(urlPath(url)));
+	}
+
+	void copyUrl(String url, Path out) throws IOException {
+		Path file = resolve(urlPath(url));
+		Files.createDirectories(out.toAbsolutePath().getParent());
+		Files.copy(file, out, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private Path resolve(String path) throws IOException {
+		Path ret = root.resolve(path);
+		if (!Files.isRegularFile(ret)) throw new FileNotFoundException(path + " is not included in the offline bundle");
+
+		return ret;
+	}
+}
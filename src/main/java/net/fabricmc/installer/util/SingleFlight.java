@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.util;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs at most one load per key at a time, concurrent callers for the same key wait for and share its result.
+ *
+ * <p>A memoizing instance also keeps successful results for the lifetime of the process. Failures are never kept,
+ * the next call for the key tries again.
+ */
+public final class SingleFlight<K, V> {
+	private final Map<K, CompletableFuture<V>> results = new ConcurrentHashMap<>();
+	private final boolean memoize;
+
+	private SingleFlight(boolean memoize) {
+		this.memoize = memoize;
+	}
+
+	/**
+	 * Share in-flight loads and cache their results.
+	 */
+	public static <K, V> SingleFlight<K, V> memoize() {
+		return new SingleFlight<>(true);
+	}
+
+	/**
+	 * Only share in-flight loads, a later call loads again.
+	 */
+	public static <K, V> SingleFlight<K, V> dedupe() {
+		return new SingleFlight<>(false);
+	}
+
+	public V get(K key, Loader<V> loader) throws IOException {
+		CompletableFuture<V> future = results.get(key);
+
+		if (future == null) {
+			CompletableFuture<V> newFuture = new CompletableFuture<>();
+			future = results.putIfAbsent(key, newFuture);
+
+			if (future == null) {
+				return load(key, newFuture, loader);
+			}
+		}
+
+		return Utils.await(future);
+	}
+
+	/**
+	 * Get an already loaded value without waiting or loading it.
+	 *
+	 * @return the value, or null if it wasn't loaded successfully yet
+	 */
+	public V getIfPresent(K key) {
+		CompletableFuture<V> future = results.get(key);
+
+		return future != null && future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+	}
+
+	private V load(K key, CompletableFuture<V> future, Loader<V> loader) throws IOException {
+		try {
+			V value = loader.load();
+			future.complete(value);
+
+			if (!memoize) results.remove(key, future);
+
+			return value;
+		} catch (Throwable t) {
+			results.remove(key, future);
+			future.completeExceptionally(t);
+			throw t;
+		}
+	}
+
+	public interface Loader<V> {
+		V load() throws IOException;
+	}
+}
@@ -19,11 +19,15 @@ package net.fabricmc.installer.util;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.DateFormat;
@@ -33,6 +37,9 @@ import java.util.Base64;
 import java.util.Locale;
 import java.util.PropertyResourceBundle;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -56,6 +63,14 @@ public class Utils {
 		}
 	});
 
+	/**
+	 * Trade speed for a smaller footprint, set with the fabric.installer.lowMemory system property or enabled
+	 * automatically for heaps below 128 MiB, such as in memory capped containers.
+	 */
+	public static final boolean LOW_MEMORY = System.getProperty("fabric.installer.lowMemory") != null
+			? Boolean.getBoolean("fabric.installer.lowMemory")
+			: Runtime.getRuntime().maxMemory() < 128L * 1024 * 1024;
+
 	public static Path findDefaultInstallDir() {
 		Path dir;
 
@@ -89,7 +104,7 @@ public class Utils {
 	}
 
 	public static String readString(InputStream is) throws IOException {
-		byte[] data = new byte[Math.max(1000, is.available())];
+		byte[] data = new byte[Math.max(8192, is.available())];
 		int offset = 0;
 		int len;
 
@@ -101,7 +116,8 @@ public class Utils {
 					int next = is.read();
 					if (next < 0) break;
 
-					data = Arrays.copyOf(data, data.length * 2);
+					// Grow by half rather than doubling, the result is copied into the String anyway
+					data = Arrays.copyOf(data, data.length + (data.length >> 1));
 					data[offset++] = (byte) next;
 				}
 			}
@@ -112,6 +128,34 @@ public class Utils {
 		return new String(data, 0, offset, StandardCharsets.UTF_8);
 	}
 
+	/**
+	 * Hard link source to target, falling back to a copy if the file system doesn't support it.
+	 *
+	 * <p>The target is atomically replaced rather than written to, so the source is never modified and other processes
+	 * never see a partial file.
+	 */
+	public static void linkOrCopy(Path source, Path target) throws IOException {
+		if (Files.exists(target) && Files.isSameFile(source, target)) {
+			return;
+		}
+
+		Files.createDirectories(target.toAbsolutePath().getParent());
+		Path tmp = FileLocks.tempFile(target);
+
+		try {
+			try {
+				Files.createLink(tmp, source);
+			} catch (UnsupportedOperationException | FileSystemException e) {
+				// Different file system or no hard link support, fall back to a plain copy
+				Files.copy(source, tmp, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
 	public static void writeToFile(Path path, String string) throws IOException {
 		Files.write(path, string.getBytes(StandardCharsets.UTF_8));
 	}
@@ -135,6 +179,33 @@ public class Utils {
 		return "TNT"; // Fallback to TNT icon if we cant load Fabric icon.
 	}
 
+	/**
+	 * Wait for a future, unwrapping any {@link IOException} or {@link RuntimeException} it failed with.
+	 */
+	public static <T> T await(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a background task");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof CompletionException && cause.getCause() != null) cause = cause.getCause();
+
+			if (cause instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) cause).getCause();
+			} else if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+
+			throw new IOException(cause);
+		}
+	}
+
 	public static String sha1String(Path path) throws IOException {
 		return bytesToHex(sha1(path));
 	}
@@ -154,7 +225,7 @@ public class Utils {
 		return digest.digest();
 	}
 
-	private static MessageDigest sha1Digest() {
+	public static MessageDigest sha1Digest() {
 		try {
 			return MessageDigest.getInstance("SHA-1");
 		} catch (NoSuchAlgorithmException e) {
@@ -16,6 +16,7 @@
 
 package net.fabricmc.installer.util;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -25,6 +26,46 @@ public class VersionMeta {
 	public final String id;
 	public final Map<String, Download> downloads;
 
+	private VersionMeta(String id, Map<String, Download> downloads) {
+		this.id = id;
+		this.downloads = downloads;
+	}
+
+	/**
+	 * Stream the id and downloads out of a version json, skipping the much larger library and argument lists.
+	 */
+	public static VersionMeta read(JsonReader reader) throws IOException {
+		String id = null;
+		Map<String, Download> downloads = new HashMap<>();
+
+		reader.beginObject();
+
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+			case "id":
+				id = reader.nextString();
+				break;
+			case "downloads":
+				reader.beginObject();
+
+				while (reader.hasNext()) {
+					downloads.put(reader.nextName(), Download.read(reader));
+				}
+
+				reader.endObject();
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+
+		reader.endObject();
+
+		if (id == null) throw new IOException("Version json without id");
+
+		return new VersionMeta(id, downloads);
+	}
+
 	public VersionMeta(Json json) {
 		id = json.at("id").asString();
 		downloads = new HashMap<>();
@@ -39,6 +80,42 @@ public class VersionMeta {
 		public final long size;
 		public final String url;
 
+		private Download(String sha1, long size, String url) {
+			this.sha1 = sha1;
+			this.size = size;
+			this.url = url;
+		}
+
+		static Download read(JsonReader reader) throws IOException {
+			String sha1 = null;
+			long size = -1;
+			String url = null;
+
+			reader.beginObject();
+
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case "sha1":
+					sha1 = reader.nextString();
+					break;
+				case "size":
+					size = reader.nextLong();
+					break;
+				case "url":
+					url = reader.nextString();
+					break;
+				default:
+					reader.skipValue();
+				}
+			}
+
+			reader.endObject();
+
+			if (sha1 == null || url == null) throw new IOException("Download without sha1 or url");
+
+			return new Download(sha1, size, url);
+		}
+
 		public Download(Json json) {
 			sha1 = json.at("sha1").asString();
 			size = json.at("size").asLong();
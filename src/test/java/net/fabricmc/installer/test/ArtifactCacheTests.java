@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.test;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.fabricmc.installer.util.ArtifactCache;
+
+public class ArtifactCacheTests {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void testTraversal() throws IOException {
+		ArtifactCache cache = new ArtifactCache(temp.getRoot().toPath(), ArtifactCache.DEFAULT_TTL_MS);
+
+		Assert.assertTrue(cache.isCacheable("maven/net/fabricmc/fabric-loader/0.15.1/fabric-loader-0.15.1.jar"));
+		Assert.assertTrue(cache.isCacheable("external/piston-data.mojang.com/v1/objects/server.jar"));
+
+		// Would be fetched from Fabric Maven but stored for a host that isn't mirrored
+		String[] paths = {"maven/../external/example.com/file", "external/piston-data.mojang.com/../../external/example.com/file",
+				"maven/./file", "maven//file", "maven/..\\external/example.com/file"};
+
+		for (String path : paths) {
+			Assert.assertFalse(path, cache.isCacheable(path));
+
+			try {
+				cache.get(path);
+				Assert.fail(path);
+			} catch (IllegalArgumentException e) {
+				// Expected, without any download
+			}
+		}
+	}
+}
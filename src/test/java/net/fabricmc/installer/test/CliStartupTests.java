@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.fabricmc.installer.Main;
+import net.fabricmc.installer.server.GarbageCollector;
+import net.fabricmc.installer.server.InstallLock;
+import net.fabricmc.installer.util.HttpClient;
+import net.fabricmc.installer.util.Utils;
+
+/**
+ * Checks that the command line never loads AWT or Swing, or the http client for local runs, by listing the classes
+ * loaded by a separate JVM.
+ */
+public class CliStartupTests {
+	private static final Pattern GUI_CLASS = Pattern.compile("\\b(?:java\\.awt|javax\\.swing|sun\\.awt)\\.[\\w.$]+");
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void testHelp() throws Exception {
+		Path meta = temp.newFolder("meta").toPath();
+		write(meta.resolve("v2/versions/game.json"), "[{\"version\":\"1.20\",\"stable\":true}]");
+		write(meta.resolve("v2/versions/loader.json"), "[{\"version\":\"0.15.1\",\"stable\":true}]");
+
+		String output = run("help", "-metaurl", meta.toString());
+		Assert.assertTrue(output, output.contains("Latest Loader: 0.15.1"));
+
+		// The commands are listed even if the metadata can't be loaded
+		output = run(1, "help", "-metaurl", temp.newFolder("empty").toString());
+		Assert.assertTrue(output, output.contains("gc " + GarbageCollector.CLI_HELP));
+		Assert.assertTrue(output, output.contains("Unable to load metadata"));
+	}
+
+	@Test
+	public void testServerFromLock() throws Exception {
+		Path dir = temp.newFolder("server").toPath();
+		// Without libraries the install from a lock doesn't need any network access
+		write(dir.resolve(InstallLock.FILE_NAME), "{\"formatVersion\":1,\"gameVersion\":\"1.20\",\"loaderVersion\":\"0.15.1\","
+				+ "\"mainClass\":{\"launch\":\"Knot\",\"manifest\":\"Launcher\"},\"libraries\":[]}");
+
+		run("server", "-dir", dir.toString(), "-lock");
+		Assert.assertTrue(Files.isRegularFile(dir.resolve("fabric-server-launch.jar")));
+	}
+
+	@Test
+	public void testServerPinned() throws Exception {
+		Path dir = temp.newFolder("server").toPath();
+		// No version lists, exact versions go straight to the server json
+		Path meta = temp.newFolder("meta").toPath();
+		write(meta.resolve("v2/versions/loader/1.20/0.15.1/server/json.json"), "{\"mainClass\":\"Knot\",\"libraries\":[]}");
+
+		run("server", "-dir", dir.toString(), "-mcversion", "1.20", "-loader", "0.15.1", "-metaurl", meta.toString());
+		Assert.assertTrue(Files.isRegularFile(dir.resolve("fabric-server-launch.jar")));
+
+		// Strict mode validates against the lists first
+		String output = run(1, "server", "-dir", dir.toString(), "-mcversion", "1.20", "-loader", "0.15.1", "-metaurl", meta.toString(), "-strict");
+		Assert.assertTrue(output, output.contains("Unable to load metadata"));
+	}
+
+	private String run(String... args) throws IOException, InterruptedException {
+		return run(0, args);
+	}
+
+	private String run(int exitValue, String... args) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<>(Arrays.asList(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+				"-verbose:class",
+				"-Dfabric.installer.cacheDir=" + temp.newFolder("cache"),
+				"-cp", System.getProperty("java.class.path"),
+				Main.class.getName()));
+		command.addAll(Arrays.asList(args));
+
+		Path log = temp.getRoot().toPath().resolve("output.log");
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+
+		if (!process.waitFor(1, TimeUnit.MINUTES)) {
+			process.destroyForcibly();
+			Assert.fail("Installer timed out");
+		}
+
+		String output = Utils.readString(log);
+		Assert.assertEquals(output, exitValue, process.exitValue());
+
+		Matcher matcher = GUI_CLASS.matcher(output);
+		if (matcher.find()) Assert.fail(String.join(" ", args) + " loaded " + matcher.group());
+
+		// Everything is local, so not even connection pre-warming may reach for the network
+		Assert.assertFalse(String.join(" ", args) + " loaded the http client", output.contains(HttpClient.class.getName() + " "));
+
+		return output;
+	}
+
+	private static void write(Path file, String content) throws IOException {
+		Files.createDirectories(file.getParent());
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.fabricmc.installer.util.DigestIndex;
+import net.fabricmc.installer.util.Utils;
+
+public class DigestIndexTests {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void test() throws IOException {
+		Path indexFile = temp.getRoot().toPath().resolve("server/.fabric/server/digests.properties");
+		// A server jar outside of the install, nothing may be written next to it
+		Path file = temp.newFolder("jars").toPath().resolve("server.jar");
+		Files.write(file, "hello".getBytes(StandardCharsets.UTF_8));
+
+		String sha1 = DigestIndex.sha1String(indexFile, file);
+		Assert.assertEquals(Utils.sha1String(file), sha1);
+		Assert.assertTrue(Files.exists(indexFile));
+
+		try (Stream<Path> files = Files.list(file.getParent())) {
+			Assert.assertEquals(Collections.singletonList(file), files.collect(Collectors.toList()));
+		}
+
+		// A recorded hash is trusted while the size and mtime are unchanged
+		DigestIndex.put(indexFile, file, "cached");
+		Assert.assertEquals("cached", DigestIndex.sha1String(indexFile, file));
+	}
+
+	@Test
+	public void testPrune() throws IOException {
+		Path indexFile = temp.getRoot().toPath().resolve("digests.properties");
+		Path removed = temp.getRoot().toPath().resolve("1.20-server.jar");
+		Path file = temp.getRoot().toPath().resolve("1.21-server.jar");
+		Files.write(removed, "old".getBytes(StandardCharsets.UTF_8));
+		Files.write(file, "new".getBytes(StandardCharsets.UTF_8));
+
+		DigestIndex.put(indexFile, removed, "old");
+		Files.delete(removed);
+		DigestIndex.put(indexFile, file, "new");
+
+		String index = Utils.readString(indexFile);
+		Assert.assertFalse(index, index.contains("1.20-server.jar"));
+		Assert.assertTrue(index, index.contains("1.21-server.jar"));
+	}
+
+	@Test
+	public void testModified() throws IOException {
+		Path indexFile = temp.getRoot().toPath().resolve("digests.properties");
+		Path file = temp.getRoot().toPath().resolve("server.jar");
+		Files.write(file, "hello".getBytes(StandardCharsets.UTF_8));
+		DigestIndex.put(indexFile, file, "cached");
+
+		Files.write(file, "hello world".getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+
+		Assert.assertEquals(Utils.sha1String(file), DigestIndex.sha1String(indexFile, file));
+	}
+
+	@Test
+	public void testStrict() throws IOException {
+		Path indexFile = temp.getRoot().toPath().resolve("digests.properties");
+		Path file = temp.getRoot().toPath().resolve("server.jar");
+		Files.write(file, "hello".getBytes(StandardCharsets.UTF_8));
+		DigestIndex.put(indexFile, file, "cached");
+
+		try {
+			DigestIndex.setStrict(true);
+			Assert.assertEquals(Utils.sha1String(file), DigestIndex.sha1String(indexFile, file));
+		} finally {
+			DigestIndex.setStrict(false);
+		}
+	}
+}
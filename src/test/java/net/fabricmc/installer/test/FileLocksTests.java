@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.test;
+
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.fabricmc.installer.util.FileLocks;
+
+/**
+ * Several JVMs download the same file at once, only one of them may actually download it.
+ */
+public class FileLocksTests {
+	private static final int PROCESSES = 4;
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void testConcurrentProcesses() throws Exception {
+		Path root = temp.getRoot().toPath();
+		Path lockDir = root.resolve(FileLocks.LOCK_DIR);
+		Path file = root.resolve("libraries/library.jar");
+		Path log = root.resolve("downloads.log");
+		Path start = root.resolve("start");
+		List<Process> processes = new ArrayList<>();
+
+		for (int i = 0; i < PROCESSES; i++) {
+			processes.add(new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+					"-cp", System.getProperty("java.class.path"),
+					FileLocksTests.class.getName(), lockDir.toString(), file.toString(), log.toString(), start.toString(), root.resolve("ready-" + i).toString())
+					.inheritIO()
+					.start());
+		}
+
+		// Release all processes at once, once every JVM has started
+		for (int i = 0; i < PROCESSES; i++) {
+			Path ready = root.resolve("ready-" + i);
+
+			for (int wait = 0; !Files.exists(ready); wait++) {
+				Assert.assertTrue("process " + i + " didn't start", wait < 600);
+				Thread.sleep(100);
+			}
+		}
+
+		Files.createFile(start);
+
+		for (Process process : processes) {
+			Assert.assertTrue(process.waitFor(1, TimeUnit.MINUTES));
+			Assert.assertEquals(0, process.exitValue());
+		}
+
+		Assert.assertEquals(1, Files.readAllLines(log).size());
+		Assert.assertEquals("content", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+
+		// No lock or temporary files next to the download
+		try (Stream<Path> files = Files.list(file.getParent())) {
+			Assert.assertEquals(Arrays.asList(file), files.collect(Collectors.toList()));
+		}
+	}
+
+	/**
+	 * Child process: lockDir, file, download log, start marker and ready marker.
+	 */
+	public static void main(String[] args) throws Exception {
+		Path file = Paths.get(args[1]);
+		Path log = Paths.get(args[2]);
+		Path start = Paths.get(args[3]);
+
+		Files.createFile(Paths.get(args[4]));
+
+		while (!Files.exists(start)) {
+			Thread.sleep(10);
+		}
+
+		FileLocks.download(Paths.get(args[0]), file, Files::exists, tmp -> {
+			Files.write(log, "download\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+			// Keep the lock long enough for the other processes to queue up behind it
+			try {
+				Thread.sleep(500);
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			}
+
+			Files.write(tmp, "content".getBytes(StandardCharsets.UTF_8));
+		});
+	}
+}
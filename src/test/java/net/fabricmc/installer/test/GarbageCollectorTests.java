@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.fabricmc.installer.server.GarbageCollector;
+import net.fabricmc.installer.server.InstallLock;
+import net.fabricmc.installer.server.ServerInstaller;
+import net.fabricmc.installer.util.FileLocks;
+
+public class GarbageCollectorTests {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void test() throws IOException {
+		Path dir = temp.getRoot().toPath();
+		write(dir.resolve(InstallLock.FILE_NAME), "{\"formatVersion\":1,\"gameVersion\":\"1.20\",\"loaderVersion\":\"0.15.1\","
+				+ "\"mainClass\":{\"launch\":\"Knot\",\"manifest\":\"Launcher\"},"
+				+ "\"libraries\":[{\"name\":\"net.fabricmc:current:2\",\"url\":\"https://maven.fabricmc.net/\",\"sha1\":\"0\",\"size\":1}]}");
+
+		Path current = write(dir.resolve("libraries/net/fabricmc/current/2/current-2.jar"), "live");
+		Path old = write(dir.resolve("libraries/net/fabricmc/old/1/old-1.jar"), "unused");
+		// Extracted by the vanilla server, never installed by us
+		Path vanilla = write(dir.resolve("libraries/com/mojang/brigadier/1/brigadier-1.jar"), "vanilla");
+		write(dir.resolve(GarbageCollector.HISTORY_FILE), "libraries/net/fabricmc/old/1/old-1.jar\nlibraries/net/fabricmc/current/2/current-2.jar\n");
+
+		// Every download leaves a lock file behind, they are kept while the lock directory is in use
+		Path lockDir = dir.resolve(ServerInstaller.LOCK_DIR);
+		FileLocks.withLock(lockDir, old, () -> null);
+
+		GarbageCollector.collect(dir, true);
+		Assert.assertTrue(Files.exists(old));
+		Assert.assertEquals(1, countLocks(lockDir));
+
+		FileLocks.withLock(lockDir, current, () -> {
+			GarbageCollector.collect(dir, false);
+			return null;
+		});
+		Assert.assertEquals(2, countLocks(lockDir));
+
+		GarbageCollector.collect(dir, false);
+		Assert.assertEquals(0, countLocks(lockDir));
+		Assert.assertFalse(Files.exists(old));
+		Assert.assertFalse(Files.exists(dir.resolve("libraries/net/fabricmc/old")));
+		Assert.assertTrue(Files.exists(current));
+		Assert.assertTrue(Files.exists(vanilla));
+		Assert.assertEquals("libraries/net/fabricmc/current/2/current-2.jar", String.join("\n", Files.readAllLines(dir.resolve(GarbageCollector.HISTORY_FILE))));
+	}
+
+	private static long countLocks(Path dir) throws IOException {
+		try (Stream<Path> stream = Files.list(dir)) {
+			return stream.filter(file -> file.toString().endsWith(FileLocks.LOCK_SUFFIX)).count();
+		}
+	}
+
+	private static Path write(Path file, String content) throws IOException {
+		Files.createDirectories(file.getParent());
+		return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.fabricmc.installer.util.HttpClient;
+
+public class HttpClientTests {
+	@Test
+	public void testPrewarm() throws Exception {
+		List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+		try (ServerSocket server = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+			Thread thread = new Thread(() -> serve(server, requests));
+			thread.setDaemon(true);
+			thread.start();
+
+			String base = "http://127.0.0.1:" + server.getLocalPort() + "/";
+			HttpClient.prewarm(Collections.singletonList(new URL(base + "unused")));
+
+			for (int i = 0; i < 100 && requests.isEmpty(); i++) {
+				Thread.sleep(50);
+			}
+
+			// Give the client a moment to return the connection to the keep-alive cache
+			Thread.sleep(200);
+
+			Assert.assertEquals("hi", HttpClient.readString(new URL(base + "file")));
+			// The request has to reuse the connection opened by the prewarm, prefixed with the connection index below
+			Assert.assertEquals(Arrays.asList("0 HEAD / HTTP/1.1", "0 GET /file HTTP/1.1"), requests);
+		}
+	}
+
+	@Test
+	public void testPrewarmProxy() throws Exception {
+		List<String> requests = Collections.synchronizedList(new ArrayList<>());
+		ProxySelector defaultSelector = ProxySelector.getDefault();
+
+		try (ServerSocket server = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+			Thread thread = new Thread(() -> serve(server, requests));
+			thread.setDaemon(true);
+			thread.start();
+
+			// The host can't be reached directly, only through the proxy from the selector
+			Proxy proxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort()));
+			ProxySelector.setDefault(new ProxySelector() {
+				@Override
+				public List<Proxy> select(URI uri) {
+					return Collections.singletonList(uri.getHost().equals("prewarm.invalid") ? proxy : Proxy.NO_PROXY);
+				}
+
+				@Override
+				public void connectFailed(URI uri, SocketAddress address, IOException e) {
+				}
+			});
+
+			HttpClient.prewarm(Collections.singletonList(new URL("http://prewarm.invalid/unused")));
+
+			for (int i = 0; i < 100 && requests.isEmpty(); i++) {
+				Thread.sleep(50);
+			}
+
+			Assert.assertEquals(Collections.singletonList("0 HEAD http://prewarm.invalid/ HTTP/1.1"), requests);
+		} finally {
+			ProxySelector.setDefault(defaultSelector);
+		}
+	}
+
+	// Minimal HTTP/1.1 server keeping every connection alive, unlike com.sun.net.httpserver after a HEAD request
+	private static void serve(ServerSocket server, List<String> requests) {
+		try {
+			for (int i = 0; ; i++) {
+				Socket socket = server.accept();
+				int connection = i;
+
+				Thread thread = new Thread(() -> {
+					try (Socket s = socket) {
+						BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+						OutputStream out = s.getOutputStream();
+						String requestLine;
+
+						while ((requestLine = reader.readLine()) != null) {
+							String header;
+
+							do {
+								header = reader.readLine();
+							} while (header != null && !header.isEmpty());
+
+							requests.add(connection + " " + requestLine);
+							String body = requestLine.startsWith("HEAD") ? "" : "hi";
+							out.write(("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\n" + body).getBytes(StandardCharsets.US_ASCII));
+							out.flush();
+						}
+					} catch (IOException e) {
+						// Closed
+					}
+				});
+				thread.setDaemon(true);
+				thread.start();
+			}
+		} catch (IOException e) {
+			// Server closed
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import mjson.Json;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.fabricmc.installer.server.InstallLock;
+import net.fabricmc.installer.server.ServerCli;
+import net.fabricmc.installer.util.ArgumentParser;
+import net.fabricmc.installer.util.Utils;
+import net.fabricmc.installer.util.VersionMeta;
+
+public class InstallLockTests {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void test() throws IOException {
+		Path file = temp.getRoot().toPath().resolve(InstallLock.FILE_NAME);
+		Utils.writeToFile(file, Json.object()
+				.set("formatVersion", 1)
+				.set("gameVersion", "1.20")
+				.set("loaderVersion", "0.15.0")
+				.set("mainClass", Json.object().set("launch", "Knot").set("manifest", "Launcher"))
+				.set("libraries", Json.array().add(Json.object()
+						.set("name", "net.fabricmc:intermediary:1.20")
+						.set("url", "https://maven.fabricmc.net/")
+						.set("sha1", "abc")
+						.set("size", 42)))
+				.toString());
+
+		InstallLock lock = InstallLock.read(file);
+		Assert.assertEquals("1.20", lock.gameVersion);
+		Assert.assertEquals("Knot", lock.launchMainClass);
+		Assert.assertEquals(1, lock.libraries.size());
+		Assert.assertEquals(42, lock.libraries.get(0).size);
+		Assert.assertNull(lock.serverJar);
+
+		// The server jar is added once downloaded and survives a round trip
+		VersionMeta.Download serverJar = new VersionMeta.Download(Json.object().set("url", "https://example.com/server.jar").set("sha1", "def").set("size", 7));
+		lock.withServerJar(serverJar).write(file);
+		lock = InstallLock.read(file);
+
+		Assert.assertEquals("def", lock.serverJar.sha1);
+		Assert.assertEquals("abc", lock.libraries.get(0).sha1);
+		Assert.assertEquals("0.15.0", lock.loaderVersion);
+	}
+
+	@Test
+	public void testReplace() throws Exception {
+		Path dir = temp.newFolder("server").toPath();
+		Path other = temp.getRoot().toPath().resolve("other.lock");
+		// Without libraries the install from a lock doesn't need any network access
+		writeLock(dir.resolve(InstallLock.FILE_NAME), "1.20", "0.15.0");
+		writeLock(other, "1.21", "0.16.0");
+
+		ServerCli.installCli(ArgumentParser.create(new String[]{"-dir", dir.toString(), "-lock"}));
+		Assert.assertEquals("1.20", InstallLock.read(dir.resolve(InstallLock.FILE_NAME)).gameVersion);
+
+		// Installing another version replaces the lock of the previous install
+		ServerCli.installCli(ArgumentParser.create(new String[]{"-dir", dir.toString(), "-lock", other.toString()}));
+		InstallLock lock = InstallLock.read(dir.resolve(InstallLock.FILE_NAME));
+
+		Assert.assertEquals("1.21", lock.gameVersion);
+		Assert.assertEquals("0.16.0", lock.loaderVersion);
+	}
+
+	private static void writeLock(Path file, String gameVersion, String loaderVersion) throws IOException {
+		Utils.writeToFile(file, Json.object()
+				.set("formatVersion", 1)
+				.set("gameVersion", gameVersion)
+				.set("loaderVersion", loaderVersion)
+				.set("mainClass", Json.object().set("launch", "Knot").set("manifest", "Launcher"))
+				.set("libraries", Json.array())
+				.toString());
+	}
+}
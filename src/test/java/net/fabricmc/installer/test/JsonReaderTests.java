@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.fabricmc.installer.util.JsonReader;
+
+public class JsonReaderTests {
+	@Test
+	public void test() throws IOException {
+		JsonReader reader = new JsonReader(new StringReader(" {\"a\" : [1, {\"b\":[true,null,\"x\\\"\"]}, -2.5e3], \"c\":\"d\",\"e\":{} } "));
+		reader.beginObject();
+		Assert.assertTrue(reader.hasNext());
+		Assert.assertEquals("a", reader.nextName());
+		reader.skipValue();
+		Assert.assertTrue(reader.hasNext());
+		Assert.assertEquals("c", reader.nextName());
+		Assert.assertEquals("d", reader.nextString());
+		Assert.assertEquals("e", reader.nextName());
+		reader.beginObject();
+		Assert.assertFalse(reader.hasNext());
+		reader.endObject();
+		Assert.assertFalse(reader.hasNext());
+		reader.endObject();
+	}
+
+	@Test
+	public void testInvalid() throws IOException {
+		// Missing or doubled separators and trailing commas are rejected like mjson does
+		for (String json : new String[] {"{\"a\" \"b\"}", "[1 2]", "{\"a\"::,\"b\"}", "{\"a\":1 \"b\":2}", "[1,]", "{\"a\":1,}", "[,1]", "{,\"a\":1}", "{\"a\"}", "[1", "[:]"}) {
+			assertInvalid(json, new JsonReader(new StringReader(json)));
+		}
+
+		// As are concatenated documents
+		for (String json : new String[] {"{}{}", "[1]]", "[1],[2]"}) {
+			JsonReader reader = new JsonReader(new StringReader(json));
+			reader.skipValue();
+			assertInvalid(json, reader);
+		}
+	}
+
+	private static void assertInvalid(String json, JsonReader reader) {
+		try {
+			reader.skipValue();
+			Assert.fail("Accepted " + json);
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.fabricmc.installer.util.LauncherMeta;
+
+public class LauncherMetaTests {
+	private static final String MANIFEST = "{\n"
+			+ "  \"latest\": {\"release\": \"1.21\", \"snapshot\": \"24w01a\"},\n"
+			+ "  \"versions\": [\n"
+			+ "    {\"id\": \"24w01a\", \"type\": \"snapshot\", \"url\": \"https://example.com/24w01a.json\", \"complianceLevel\": 1, \"extra\": [{\"nested\": \"]}\"}, null, true]},\n"
+			+ "    {\"type\": \"release\", \"url\": \"https://example.com/1.21.json\", \"id\": \"1.21\"},\n"
+			+ "    {\"id\": \"1.20\\u002e1 \\\"quoted\\\"\", \"url\": \"https://example.com/1.20.1.json\", \"sha1\": \"abc\\\\\"}\n"
+			+ "  ]\n"
+			+ "}";
+
+	@Test
+	public void testReadIndex() throws IOException {
+		Map<String, String> index = LauncherMeta.readIndex(new StringReader(MANIFEST), null);
+
+		Assert.assertEquals(Arrays.asList("24w01a", "1.21", "1.20.1 \"quoted\""), new ArrayList<>(index.keySet()));
+		Assert.assertEquals("https://example.com/1.21.json", index.get("1.21"));
+		Assert.assertEquals("https://example.com/1.20.1.json", index.get("1.20.1 \"quoted\""));
+	}
+
+	@Test
+	public void testStopEarly() throws IOException {
+		CountingReader reader = new CountingReader(MANIFEST);
+		Map<String, String> index = LauncherMeta.readIndex(reader, "24w01a");
+
+		Assert.assertEquals(1, index.size());
+		Assert.assertEquals("https://example.com/24w01a.json", index.get("24w01a"));
+		Assert.assertTrue(reader.read < MANIFEST.indexOf("\"release\", \"url\""));
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncated() throws IOException {
+		LauncherMeta.readIndex(new StringReader(MANIFEST.substring(0, 200)), null);
+	}
+
+	private static final class CountingReader extends Reader {
+		private final StringReader reader;
+		int read;
+
+		CountingReader(String str) {
+			reader = new StringReader(str);
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			// One char at a time so the count reflects how far the parser got
+			int ret = reader.read(cbuf, off, Math.min(len, 1));
+			if (ret > 0) read += ret;
+
+			return ret;
+		}
+
+		@Override
+		public void close() {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.fabricmc.installer.Main;
+import net.fabricmc.installer.util.Utils;
+
+/**
+ * Runs a full server install in a separate JVM with a small heap, against a local stand-in for Fabric Meta, Fabric
+ * Maven and the Mojang servers. The metadata is padded to well beyond its real size so anything buffering or building
+ * a tree of a whole response is noticed.
+ */
+public class LowMemoryInstallTests {
+	private static final String HEAP = "-Xmx16m";
+	private static final int PADDING_VERSIONS = 50_000;
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void test() throws Exception {
+		Path root = temp.newFolder("remote").toPath();
+		createRemote(root);
+
+		Set<String> requests = ConcurrentHashMap.newKeySet();
+		HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", exchange -> {
+			requests.add(exchange.getRequestURI().getPath());
+			Path file = root.resolve(exchange.getRequestURI().getPath().substring(1)).normalize();
+			if (!Files.isRegularFile(file)) file = file.resolveSibling(file.getFileName() + ".json");
+
+			if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+				exchange.sendResponseHeaders(404, -1);
+			} else {
+				exchange.sendResponseHeaders(200, Files.size(file));
+
+				try (OutputStream os = exchange.getResponseBody()) {
+					Files.copy(file, os);
+				}
+			}
+
+			exchange.close();
+		});
+		server.start();
+
+		try {
+			String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+			Path dir = temp.newFolder("server").toPath();
+			Path log = temp.getRoot().toPath().resolve("install.log");
+
+			List<String> command = Arrays.asList(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+					HEAP,
+					"-Djava.awt.headless=true",
+					"-Dfabric.installer.cacheDir=" + temp.newFolder("cache"),
+					"-cp", System.getProperty("java.class.path"),
+					Main.class.getName(), "server",
+					"-dir", dir.toString(),
+					"-mcversion", "1.20",
+					"-loader", "0.15.1",
+					// Exact versions would skip the padded version lists
+					"-strict",
+					"-downloadMinecraft",
+					"-metaurl", url + "meta/",
+					"-mavenurl", url + "maven/",
+					"-externalurl", url + "external/");
+
+			Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+
+			if (!process.waitFor(2, TimeUnit.MINUTES)) {
+				process.destroyForcibly();
+				Assert.fail("Install timed out");
+			}
+
+			Assert.assertEquals("Install failed with " + HEAP + ":\n" + Utils.readString(log), 0, process.exitValue());
+			Assert.assertEquals(Utils.sha1String(root.resolve("external/example.com/server.jar")), Utils.sha1String(dir.resolve("server.jar")));
+			Assert.assertTrue(Files.isRegularFile(dir.resolve("fabric-server-launch.jar")));
+			Assert.assertTrue(Files.isRegularFile(dir.resolve("libraries/net/fabricmc/fabric-loader/0.15.1/fabric-loader-0.15.1.jar")));
+			Assert.assertTrue(requests.toString(), requests.contains("/meta/v2/versions/game"));
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	private static void createRemote(Path root) throws IOException {
+		// The requested versions are last, so nothing can stop reading early
+		StringBuilder game = new StringBuilder("[");
+		StringBuilder manifest = new StringBuilder("{\"latest\":{\"release\":\"1.20\"},\"versions\":[");
+
+		for (int i = 0; i < PADDING_VERSIONS; i++) {
+			game.append(String.format("{\"version\":\"padding-%d\",\"stable\":false},", i));
+			manifest.append(String.format("{\"id\":\"padding-%d\",\"type\":\"snapshot\",\"url\":\"https://example.com/padding-%<d.json\",\"time\":\"2020-01-01T00:00:00+00:00\",\"sha1\":\"%040d\",\"complianceLevel\":1},", i, 0));
+		}
+
+		game.append("{\"version\":\"1.20\",\"stable\":true}]");
+		manifest.append("{\"id\":\"1.20\",\"type\":\"release\",\"url\":\"https://example.com/1.20.json\"}]}");
+
+		write(root.resolve("meta/v2/versions/game.json"), game.toString());
+		write(root.resolve("meta/v2/versions/loader.json"), "[{\"separator\":\".\",\"build\":1,\"maven\":\"net.fabricmc:fabric-loader:0.15.1\",\"version\":\"0.15.1\",\"stable\":true}]");
+		write(root.resolve("meta/v2/versions/loader/1.20/0.15.1/server/json.json"), "{\"mainClass\":\"net.fabricmc.loader.impl.launch.knot.KnotServer\",\"libraries\":["
+				+ "{\"name\":\"net.fabricmc:fabric-loader:0.15.1\",\"url\":\"https://maven.fabricmc.net/\"},"
+				+ "{\"name\":\"net.fabricmc:intermediary:1.20\",\"url\":\"https://maven.fabricmc.net/\"}]}");
+		write(root.resolve("external/launchermeta.mojang.com/mc/game/version_manifest_v2.json"), manifest.toString());
+		write(root.resolve("maven/net/minecraft/experimental_versions.json"), "{\"versions\":[]}");
+
+		createJar(root.resolve("maven/net/fabricmc/fabric-loader/0.15.1/fabric-loader-0.15.1.jar"), "net.fabricmc.loader.impl.launch.server.FabricServerLauncher");
+		createJar(root.resolve("maven/net/fabricmc/intermediary/1.20/intermediary-1.20.jar"), null);
+
+		Path serverJar = root.resolve("external/example.com/server.jar");
+		byte[] serverJarData = new byte[4 * 1024 * 1024];
+		new Random(0).nextBytes(serverJarData);
+		Files.createDirectories(serverJar.getParent());
+		Files.write(serverJar, serverJarData);
+
+		// Real version json files are mostly the library and argument lists, which aren't needed
+		StringBuilder libraries = new StringBuilder();
+
+		for (int i = 0; i < PADDING_VERSIONS / 10; i++) {
+			if (i > 0) libraries.append(',');
+			libraries.append(String.format("{\"name\":\"com.example:padding:%d\",\"downloads\":{\"artifact\":{\"sha1\":\"%040d\",\"size\":1,\"url\":\"https://example.com/%<d.jar\"}}}", i, 0));
+		}
+
+		write(root.resolve("external/example.com/1.20.json"), String.format("{\"id\":\"1.20\",\"libraries\":[%s],\"downloads\":{\"server\":{\"sha1\":\"%s\",\"size\":%d,\"url\":\"https://example.com/server.jar\"}}}",
+				libraries, Utils.sha1String(serverJar), serverJarData.length));
+	}
+
+	private static void createJar(Path file, String mainClass) throws IOException {
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		if (mainClass != null) manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, mainClass);
+
+		Files.createDirectories(file.getParent());
+
+		try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(file), manifest)) {
+			// Only the manifest is read
+		}
+	}
+
+	private static void write(Path file, String content) throws IOException {
+		Files.createDirectories(file.getParent());
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.fabricmc.installer.util.ArtifactCache;
+import net.fabricmc.installer.util.FabricService;
+import net.fabricmc.installer.util.MetaSnapshot;
+
+public class MetaSnapshotTests {
+	private Path dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("fabric-installer-test");
+	}
+
+	@After
+	public void tearDown() {
+		FabricService.setCache(null);
+	}
+
+	@Test
+	public void test() throws IOException {
+		List<String[]> game = Arrays.asList(new String[] {"1.21", "true"}, new String[] {"24w01a é", "false"});
+
+		// Without a cache nothing is kept
+		Assert.assertSame(game, MetaSnapshot.load("game", () -> game));
+		Assert.assertNull(MetaSnapshot.get("game", true));
+
+		FabricService.setCache(new ArtifactCache(dir, ArtifactCache.DEFAULT_TTL_MS));
+		Assert.assertNull(MetaSnapshot.get("game", true));
+
+		List<String[]> manifest = Arrays.asList(new String[] {"1.21", "https://example.com/1.21.json"}, new String[] {"1.20", "https://example.com/1.20.json"});
+
+		Assert.assertSame(game, MetaSnapshot.load("game", () -> game));
+		Assert.assertSame(manifest, MetaSnapshot.load("manifest", () -> manifest));
+
+		// Fresh sections are read back from the snapshot without loading
+		assertRecords(game, MetaSnapshot.load("game", () -> {
+			throw new IOException("should not be loaded");
+		}));
+		assertRecords(manifest, MetaSnapshot.get("manifest", false));
+
+		// Freshness follows the TTL of the configured cache
+		FabricService.setCache(new ArtifactCache(dir, 0));
+		Assert.assertNull(MetaSnapshot.get("manifest", false));
+		assertRecords(manifest, MetaSnapshot.get("manifest", true));
+		Assert.assertSame(game, MetaSnapshot.load("game", () -> game));
+	}
+
+	private static void assertRecords(List<String[]> expected, List<String[]> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertArrayEquals(expected.get(i), actual.get(i));
+		}
+	}
+}
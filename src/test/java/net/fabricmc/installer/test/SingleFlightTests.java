@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.fabricmc.installer.util.SingleFlight;
+import net.fabricmc.installer.util.Utils;
+
+public class SingleFlightTests {
+	@Test
+	public void testConcurrent() throws Exception {
+		SingleFlight<String, String> singleFlight = SingleFlight.dedupe();
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> get(singleFlight, () -> {
+			loads.incrementAndGet();
+			started.countDown();
+			release.await();
+			return "value";
+		}));
+
+		started.await();
+		AtomicReference<String> second = new AtomicReference<>();
+		Thread secondCaller = new Thread(() -> second.set(get(singleFlight, () -> {
+			loads.incrementAndGet();
+			return "other";
+		})));
+		secondCaller.start();
+
+		// The second caller's loader never blocks, so it can only park while waiting on the in-flight load
+		while (secondCaller.getState() != Thread.State.WAITING) {
+			Assert.assertTrue("second caller finished without waiting", secondCaller.isAlive());
+			Thread.yield();
+		}
+
+		Assert.assertNull(second.get());
+		release.countDown();
+		secondCaller.join();
+
+		Assert.assertEquals("value", Utils.await(first));
+		Assert.assertEquals("value", second.get());
+		Assert.assertEquals(1, loads.get());
+
+		// Not memoized, a later call loads again
+		Assert.assertEquals("again", singleFlight.get("key", () -> "again"));
+	}
+
+	@Test
+	public void testMemoize() throws IOException {
+		SingleFlight<String, String> singleFlight = SingleFlight.memoize();
+
+		try {
+			singleFlight.get("key", () -> {
+				throw new IOException("failed");
+			});
+			Assert.fail();
+		} catch (IOException e) {
+			// Failures are not kept
+		}
+
+		Assert.assertEquals("value", singleFlight.get("key", () -> "value"));
+		Assert.assertEquals("value", singleFlight.get("key", () -> "other"));
+	}
+
+	private static String get(SingleFlight<String, String> singleFlight, InterruptibleLoader loader) {
+		try {
+			return singleFlight.get("key", () -> {
+				try {
+					return loader.load();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			});
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private interface InterruptibleLoader {
+		String load() throws InterruptedException;
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.test;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.fabricmc.installer.Main;
+
+/**
+ * Measures the wall clock time of launching the command line installer in a fresh JVM, as done by provisioning
+ * scripts. Not run as part of the tests.
+ *
+ * <p>Usage: {@code StartupBenchmark [-runs <count, default 20>] <installer arguments>}, for example
+ * {@code StartupBenchmark -runs 50 help -metaurl /path/to/meta/mirror/}.
+ */
+public class StartupBenchmark {
+	public static void main(String[] args) throws Exception {
+		int runs = 20;
+		List<String> installerArgs = new ArrayList<>(Arrays.asList(args));
+
+		if (installerArgs.size() >= 2 && installerArgs.get(0).equals("-runs")) {
+			runs = Integer.parseInt(installerArgs.get(1));
+			installerArgs = installerArgs.subList(2, installerArgs.size());
+		}
+
+		List<String> command = new ArrayList<>(Arrays.asList(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+				"-cp", System.getProperty("java.class.path"),
+				Main.class.getName()));
+		command.addAll(installerArgs);
+
+		// One untimed run to warm the file system cache
+		run(command);
+
+		long[] millis = new long[runs];
+
+		for (int i = 0; i < runs; i++) {
+			long start = System.nanoTime();
+			run(command);
+			millis[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		}
+
+		Arrays.sort(millis);
+		System.out.printf("%d runs of %s%nmin %d ms, median %d ms, max %d ms%n", runs, installerArgs, millis[0], millis[runs / 2], millis[runs - 1]);
+	}
+
+	private static void run(List<String> command) throws Exception {
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(new File(System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null")).start();
+		int exitCode = process.waitFor();
+		if (exitCode != 0) throw new IllegalStateException("Installer exited with " + exitCode);
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.installer.util;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Compares the mapped and streamed hashes of {@link BulkHasher} against {@link Utils#sha1String}, with a 1 MiB region
+ * size so files spanning several regions stay small. Lives in the util package for the package-private constructor.
+ */
+public class BulkHasherTests {
+	private static final int MIB = 1024 * 1024;
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void testSizes() throws Exception {
+		Random random = new Random(42);
+
+		try (BulkHasher hasher = new BulkHasher(2, MIB)) {
+			// Empty, streamed just under the mapping threshold, mapped just over it and just over the second region
+			for (int size : new int[] { 0, MIB - 1, MIB, MIB + 1, 2 * MIB + 1 }) {
+				byte[] content = new byte[size];
+				random.nextBytes(content);
+				Path file = temp.getRoot().toPath().resolve(size + ".bin");
+				Files.write(file, content);
+
+				Assert.assertEquals("size " + size, Utils.sha1String(file), Utils.await(hasher.sha1String(file)));
+			}
+		}
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		Path file = temp.newFile("file.bin").toPath();
+		Path missing = temp.getRoot().toPath().resolve("missing.bin");
+
+		try (BulkHasher hasher = new BulkHasher(1, MIB)) {
+			Map<Path, CompletableFuture<String>> hashes = hasher.sha1Strings(Arrays.asList(missing, file));
+
+			try {
+				Utils.await(hashes.get(missing));
+				Assert.fail();
+			} catch (NoSuchFileException e) {
+				Assert.assertEquals(missing.toString(), e.getFile());
+			}
+
+			// The failure doesn't affect the other files or take down the worker
+			Assert.assertEquals(Utils.sha1String(file), Utils.await(hashes.get(file)));
+			Assert.assertEquals(Utils.sha1String(file), Utils.await(hasher.sha1String(file)));
+		}
+	}
+}